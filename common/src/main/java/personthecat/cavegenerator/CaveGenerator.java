@@ -2,6 +2,7 @@ package personthecat.cavegenerator;
 
 import lombok.extern.log4j.Log4j2;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.storage.LevelResource;
 import personthecat.catlib.command.LibCommandRegistrar;
 import personthecat.catlib.event.world.FeatureModificationEvent;
 import personthecat.cavegenerator.commands.CommandCave;
@@ -11,7 +12,10 @@ import personthecat.cavegenerator.noise.CachedNoiseHelper;
 import personthecat.cavegenerator.util.Reference;
 import personthecat.cavegenerator.util.XoRoShiRo;
 import personthecat.cavegenerator.world.event.CaveCleanupEvent;
+import personthecat.cavegenerator.world.generator.RegionStore;
+import personthecat.cavegenerator.world.generator.WorldCarverAdapter;
 import personthecat.cavegenerator.world.hook.FallbackFeatureHook;
+import personthecat.cavegenerator.world.hook.FallbackCarverFeature;
 import personthecat.cavegenerator.world.hook.FallbackCarverHook;
 import personthecat.overwritevalidator.annotations.OverwriteTarget;
 import personthecat.overwritevalidator.annotations.PlatformMustInherit;
@@ -30,7 +34,11 @@ public class CaveGenerator {
             FallbackFeatureHook.register();
         }
         if (Cfg.fallbackCarvers()) {
-            FallbackCarverHook.register();
+            if (Cfg.fallbackCarverFeature()) {
+                FallbackCarverFeature.register();
+            } else {
+                FallbackCarverHook.register();
+            }
         }
         FeatureModificationEvent.EVENT.register(CaveCleanupEvent::onBiomeCleanup);
     }
@@ -40,16 +48,27 @@ public class CaveGenerator {
         log.info("Loading cave generators");
         final long seed = server.getWorldData().worldGenSettings().seed();
         CaveRegistries.CURRENT_SEED.set(new XoRoShiRo(seed), seed);
+        if (Cfg.planMapRegions() && Cfg.storeMapRegions()) {
+            RegionStore.open(server.getWorldPath(LevelResource.ROOT).resolve(Reference.MOD_ID).resolve("regions"));
+        }
+        WorldCarverAdapter.load(server.registryAccess());
         CaveRegistries.loadAll();
         CaveRegistries.COMMAND_SOURCE.create(server);
     }
 
+    @PlatformMustInherit
+    public void serverTick() {
+        CaveRegistries.COMMAND_SOURCE.flush(Cfg.commandsPerTick());
+    }
+
     @PlatformMustInherit
     @SuppressWarnings("unused")
     public void serverStopping(final MinecraftServer server) {
         log.info("Unloading cave generators.");
         CaveRegistries.resetAll();
+        RegionStore.close();
         CachedNoiseHelper.removeAll();
+        WorldCarverAdapter.clearCache();
         CaveRegistries.COMMAND_SOURCE.clear();
     }
 }
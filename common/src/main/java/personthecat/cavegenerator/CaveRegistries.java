@@ -2,7 +2,6 @@ package personthecat.cavegenerator;
 
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
-import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
 import personthecat.catlib.data.SafeRegistry;
 import personthecat.cavegenerator.init.ControllerInitializer;
 import personthecat.cavegenerator.init.DisabledFeatureSupport;
@@ -10,9 +9,12 @@ import personthecat.cavegenerator.init.PresetLoadingContext;
 import personthecat.cavegenerator.model.CaveCommandSource;
 import personthecat.cavegenerator.model.SeedStorage;
 import personthecat.cavegenerator.presets.CavePreset;
+import personthecat.cavegenerator.world.DimensionIndex;
 import personthecat.cavegenerator.world.GeneratorController;
 import personthecat.cavegenerator.world.feature.StructureSpawner;
 
+import java.io.File;
+import java.util.Collections;
 import java.util.List;
 
 public class CaveRegistries {
@@ -27,7 +29,7 @@ public class CaveRegistries {
             .respondsWith(key -> "There is no generator named: " + key)
             .canBeReset(true);
 
-    public static final SafeRegistry<String, StructureTemplate> STRUCTURES =
+    public static final SafeRegistry<String, File> STRUCTURES =
         SafeRegistry.of(StructureSpawner::initStructures)
             .respondsWith(key -> "Structure file or resource not found: " + key)
             .canBeReset(true);
@@ -37,6 +39,8 @@ public class CaveRegistries {
             .respondsWith(key -> "Unsupported registry key: " + key)
             .canBeReset(true);
 
+    public static final DimensionIndex DIMENSIONS = new DimensionIndex();
+
     public static final SeedStorage CURRENT_SEED = new SeedStorage();
 
     public static final CaveCommandSource COMMAND_SOURCE = new CaveCommandSource();
@@ -51,5 +55,6 @@ public class CaveRegistries {
 
     public static void resetAll() {
         SafeRegistry.resetAll(PRESETS, GENERATORS, STRUCTURES);
+        DIMENSIONS.rebuild(Collections.emptyList());
     }
 }
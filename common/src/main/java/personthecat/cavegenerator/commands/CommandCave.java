@@ -26,7 +26,6 @@ import personthecat.cavegenerator.CaveRegistries;
 import personthecat.cavegenerator.exception.CaveOutputException;
 import personthecat.cavegenerator.init.PresetLoadingContext;
 import personthecat.cavegenerator.io.ModFolders;
-import personthecat.cavegenerator.noise.CachedNoiseHelper;
 import personthecat.cavegenerator.presets.CavePreset;
 import personthecat.cavegenerator.presets.PresetCompressor;
 import personthecat.cavegenerator.presets.lang.CaveLangExtension;
@@ -99,7 +98,6 @@ public class CommandCave {
     )
     private void reload(final CommandContextWrapper ctx) {
         LibErrorContext.clear(Reference.MOD, FormattedException.class);
-        CachedNoiseHelper.removeAll();
         PresetLoadingContext.reset();
         CaveRegistries.reloadAll();
         if (LibErrorContext.get(Reference.MOD, FormattedException.class).isEmpty()) {
@@ -39,6 +39,10 @@ public class Cfg {
         return Collections.emptyList();
     }
 
+    public static List<String> carverReach() {
+        return Collections.emptyList();
+    }
+
     public static PresetUpdatePreference updatePreference() {
         return PresetUpdatePreference.ALWAYS;
     }
@@ -51,6 +55,10 @@ public class Cfg {
         return false;
     }
 
+    public static boolean fallbackCarverFeature() {
+        return false;
+    }
+
     public static boolean fallbackFeatures() {
         return false;
     }
@@ -87,10 +95,26 @@ public class Cfg {
         return true;
     }
 
+    public static int presetThreads() {
+        return 4;
+    }
+
+    public static boolean isolatePresetSeeds() {
+        return false;
+    }
+
     public static int mapRange() {
         return 8;
     }
 
+    public static boolean planMapRegions() {
+        return false;
+    }
+
+    public static boolean storeMapRegions() {
+        return false;
+    }
+
     public static int biomeRange() {
         return 2;
     }
@@ -98,4 +122,8 @@ public class Cfg {
     public static long fallbackCarverSeed() {
         return 24L;
     }
+
+    public static int commandsPerTick() {
+        return 64;
+    }
 }
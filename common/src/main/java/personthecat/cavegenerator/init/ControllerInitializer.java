@@ -1,30 +1,131 @@
 package personthecat.cavegenerator.init;
 
+import lombok.AllArgsConstructor;
+import org.jetbrains.annotations.Nullable;
 import personthecat.cavegenerator.CaveRegistries;
+import personthecat.cavegenerator.config.Cfg;
 import personthecat.cavegenerator.model.SeedStorage;
+import personthecat.cavegenerator.noise.CachedNoiseHelper;
 import personthecat.cavegenerator.presets.CavePreset;
+import personthecat.cavegenerator.util.XoRoShiRo;
 import personthecat.cavegenerator.world.GeneratorController;
+import personthecat.cavegenerator.world.generator.RegionStore;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.TreeMap;
 
 public class ControllerInitializer {
 
+    /** The controllers from the previous load, which may be reused if unchanged. */
+    private static final Map<String, CompiledPreset> PREVIOUS = new HashMap<>();
+
     /**
      * Converts every cave preset model into a generator controller using the current seed info.
+     * Controllers will be reused when neither the preset nor the seed have changed.
+     *
+     * <p>
+     *  By default, every preset is compiled in order from the RNG shared by the current
+     *  world, which means that no controller can be reused unless every controller is
+     *  reused. When {@link Cfg#isolatePresetSeeds} is enabled, each preset is instead
+     *  compiled with its own RNG, derived from the world seed and the name of the preset.
+     *  This allows any preset to be reused individually, but changes the output of every
+     *  preset in existing worlds.
+     * </p>
      *
      * @return A map of preset name -> generator controller.
      */
     public static Map<String, GeneratorController> initControllers() {
         if (CaveRegistries.PRESETS.isEmpty()) {
+            PREVIOUS.clear();
+            CachedNoiseHelper.removeAll();
+            CaveRegistries.DIMENSIONS.rebuild(Collections.emptyList());
             return Collections.emptyMap();
         }
         final SeedStorage.Info seedInfo = CaveRegistries.CURRENT_SEED.get();
+        final Set<Integer> noiseCaches = new HashSet<>();
         final Map<String, GeneratorController> controllers = new TreeMap<>();
+        final Map<String, CompiledPreset> compiled = new HashMap<>();
+        final Map<String, String> regionKeys = new HashMap<>();
+        final boolean isolated = Cfg.isolatePresetSeeds();
+        final boolean reuse = isolated || canReuseAll(seedInfo.seed, isolated);
         for (final Map.Entry<String, CavePreset> entry : CaveRegistries.PRESETS.entrySet()) {
-            controllers.put(entry.getKey(), entry.getValue().setupController(seedInfo.rand, seedInfo.seed));
+            final String name = entry.getKey();
+            final CavePreset preset = entry.getValue();
+            final CompiledPreset previous = PREVIOUS.get(name);
+            final GeneratorController controller;
+            final String regionKey;
+            final Set<Integer> caches;
+            if (reuse && canReuse(previous, preset, seedInfo.seed, isolated)) {
+                controller = previous.controller;
+                regionKey = previous.regionKey;
+                caches = previous.noiseCaches;
+            } else {
+                final Random rand = isolated ? createRand(name, seedInfo.seed) : seedInfo.rand;
+                // The key may depend on the RNG, so it must be created before compiling.
+                regionKey = createRegionKey(name, preset, rand, seedInfo.seed, isolated);
+                caches = new HashSet<>();
+                controller = CachedNoiseHelper.track(caches, () -> preset.setupController(rand, seedInfo.seed));
+                if (regionKey != null) {
+                    controller.setRegionKeys(regionKey);
+                }
+            }
+            noiseCaches.addAll(caches);
+            if (regionKey != null) {
+                regionKeys.put(name, regionKey);
+            }
+            controllers.put(name, controller);
+            compiled.put(name, new CompiledPreset(preset, seedInfo.seed, isolated, controller, regionKey, caches));
         }
+        PREVIOUS.clear();
+        PREVIOUS.putAll(compiled);
+        // Any other cache belonged to a controller which was just replaced.
+        CachedNoiseHelper.retainAll(noiseCaches);
+        RegionStore.retainAll(regionKeys);
+        CaveRegistries.DIMENSIONS.rebuild(controllers.values());
         return controllers;
     }
+
+    private static boolean canReuseAll(final long seed, final boolean isolated) {
+        for (final Map.Entry<String, CavePreset> entry : CaveRegistries.PRESETS.entrySet()) {
+            if (!canReuse(PREVIOUS.get(entry.getKey()), entry.getValue(), seed, isolated)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean canReuse(final @Nullable CompiledPreset previous, final CavePreset preset, final long seed, final boolean isolated) {
+        return previous != null && previous.preset == preset && previous.seed == seed && previous.isolated == isolated;
+    }
+
+    private static @Nullable String createRegionKey(String name, CavePreset preset, Random rand, long seed, boolean isolated) {
+        if (isolated) {
+            return RegionStore.createKey(name, preset.raw, seed);
+        }
+        // The shared RNG depends on every preset compiled before this one.
+        if (!(rand instanceof XoRoShiRo)) {
+            return null;
+        }
+        final long[] state = ((XoRoShiRo) rand).getState();
+        return RegionStore.createKey(name + "@" + state[0] + ":" + state[1], preset.raw, seed);
+    }
+
+    private static Random createRand(final String name, final long seed) {
+        return new XoRoShiRo(seed ^ (long) name.hashCode() * 0x9E3779B97F4A7C15L);
+    }
+
+    @AllArgsConstructor
+    private static class CompiledPreset {
+        final CavePreset preset;
+        final long seed;
+        final boolean isolated;
+        final GeneratorController controller;
+        final @Nullable String regionKey;
+        final Set<Integer> noiseCaches;
+    }
 }
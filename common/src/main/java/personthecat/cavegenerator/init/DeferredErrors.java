@@ -0,0 +1,57 @@
+package personthecat.cavegenerator.init;
+
+import personthecat.catlib.event.error.LibErrorContext;
+import personthecat.catlib.event.error.Severity;
+import personthecat.catlib.exception.FormattedException;
+import personthecat.cavegenerator.util.Reference;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A buffer of errors produced while loading a single preset file. Presets may be
+ * loaded on any number of threads, so these errors are held until every file has
+ * been processed and are then reported to the {@link LibErrorContext} in a stable
+ * order.
+ */
+public class DeferredErrors {
+
+    /** An instance which reports every error as soon as it is received. */
+    public static final DeferredErrors IMMEDIATE = new DeferredErrors(true);
+
+    private final List<Runnable> reports = new ArrayList<>();
+    private final boolean immediate;
+
+    DeferredErrors() {
+        this(false);
+    }
+
+    private DeferredErrors(final boolean immediate) {
+        this.immediate = immediate;
+    }
+
+    public void error(final FormattedException e) {
+        this.submit(() -> LibErrorContext.error(Reference.MOD, e));
+    }
+
+    public void register(final Severity level, final FormattedException e) {
+        this.submit(() -> LibErrorContext.register(level, Reference.MOD, e));
+    }
+
+    private void submit(final Runnable report) {
+        if (this.immediate) {
+            report.run();
+        } else {
+            this.reports.add(report);
+        }
+    }
+
+    boolean isEmpty() {
+        return this.reports.isEmpty();
+    }
+
+    void flush() {
+        this.reports.forEach(Runnable::run);
+        this.reports.clear();
+    }
+}
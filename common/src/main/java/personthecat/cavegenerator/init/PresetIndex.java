@@ -0,0 +1,355 @@
+package personthecat.cavegenerator.init;
+
+import lombok.extern.log4j.Log4j2;
+import org.hjson.JsonArray;
+import org.hjson.JsonObject;
+import org.hjson.JsonValue;
+import org.jetbrains.annotations.Nullable;
+import personthecat.cavegenerator.config.Cfg;
+import personthecat.cavegenerator.presets.CavePreset;
+import personthecat.cavegenerator.util.PlatformUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static personthecat.catlib.io.FileIO.mkdirsOrThrow;
+
+/**
+ * Records the state of every preset file after it has been loaded, along with the
+ * import files it depends on. This enables reloads to skip any preset whose inputs
+ * have not changed since it was last loaded without errors.
+ *
+ * <p>
+ *  The index can also be written to the disk along with the expanded JSON of every
+ *  preset, which enables unchanged presets to be decoded directly on startup.
+ * </p>
+ */
+@Log4j2
+class PresetIndex {
+
+    /** The content hashes of every preset and import file, as of the last load. */
+    private final Map<File, String> hashes = new HashMap<>();
+
+    /** Every import file required by each preset, directly or indirectly. */
+    private final Map<File, Set<File>> dependencies = new HashMap<>();
+
+    /** The presets generated by each file which loaded cleanly. */
+    private final Map<File, Map<String, CavePreset>> loaded = new HashMap<>();
+
+    /** The import files present during the last load. */
+    private final Set<File> imports = new HashSet<>();
+
+    /** Expanded preset JSON read from the disk, which has not been decoded yet. */
+    private final Map<File, Map<String, JsonObject>> cached = new HashMap<>();
+
+    /** The config values which affect the output of every preset. */
+    private @Nullable String settings;
+
+    private static final String VERSION_KEY = "version";
+    private static final String SETTINGS_KEY = "settings";
+    private static final String IMPORTS_KEY = "imports";
+    private static final String FILES_KEY = "files";
+    private static final String HASH_KEY = "hash";
+    private static final String DEPENDENCIES_KEY = "dependencies";
+    private static final String PRESETS_KEY = "presets";
+
+    /**
+     * Determines which presets must be reloaded, given the current state of the
+     * preset and import folders.
+     *
+     * @param presets Every preset file currently in the presets folder.
+     * @param imports Every import file currently in the imports folder.
+     * @param current The content hashes of all of these files.
+     * @return Every preset file which must be loaded again.
+     */
+    Set<File> getStale(final Collection<File> presets, final Collection<File> imports, final Map<File, String> current) {
+        if (!getSettings().equals(this.settings)) {
+            return new HashSet<>(presets);
+        }
+        // Imports are resolved by suffix, so a new file may change any resolution.
+        final boolean importsMoved = !this.imports.equals(new HashSet<>(imports));
+        final Set<File> changedImports = new HashSet<>();
+        for (final File f : imports) {
+            if (isChanged(f, current)) {
+                changedImports.add(f);
+            }
+        }
+        final Set<File> stale = new HashSet<>();
+        for (final File f : presets) {
+            final Set<File> required = this.dependencies.getOrDefault(f, Collections.emptySet());
+            final boolean present = this.loaded.containsKey(f) || this.cached.containsKey(f);
+            if (!present || isChanged(f, current)
+                    || (importsMoved && !required.isEmpty())
+                    || !Collections.disjoint(required, changedImports)) {
+                stale.add(f);
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Decodes any cached presets for the given files.
+     *
+     * @param files The preset files which are not stale.
+     * @return Every file whose cached data could not be decoded.
+     */
+    Set<File> restore(final Collection<File> files) {
+        final Set<File> failed = new HashSet<>();
+        for (final File f : files) {
+            final Map<String, JsonObject> json = this.cached.remove(f);
+            if (json == null) {
+                continue;
+            }
+            try {
+                final Map<String, CavePreset> presets = new HashMap<>();
+                json.forEach((name, generated) -> presets.put(name, CavePreset.fromCache(name, generated)));
+                this.loaded.put(f, presets);
+            } catch (final RuntimeException e) {
+                log.debug("Unable to decode cached presets from {}. It will be reloaded.", f.getName());
+                this.forget(f);
+                failed.add(f);
+            }
+        }
+        return failed;
+    }
+
+    private boolean isChanged(final File f, final Map<File, String> current) {
+        final String hash = current.get(f);
+        return hash == null || !hash.equals(this.hashes.get(f));
+    }
+
+    /**
+     * Retrieves the presets which were generated by a file during the last load.
+     *
+     * @param f The preset file which generated these presets.
+     * @return Every preset generated by this file, or else an empty map.
+     */
+    Map<String, CavePreset> getLoaded(final File f) {
+        return this.loaded.getOrDefault(f, Collections.emptyMap());
+    }
+
+    /**
+     * Records the output of a preset file which loaded without any errors.
+     *
+     * @param f The preset file which was loaded.
+     * @param required Every import file required by this preset.
+     * @param presets Every preset generated by this file.
+     */
+    void record(final File f, final Set<File> required, final Map<String, CavePreset> presets) {
+        this.dependencies.put(f, required);
+        this.loaded.put(f, presets);
+        this.cached.remove(f);
+        this.updateHash(f);
+    }
+
+    /**
+     * Forgets the output of a preset file, forcing it to be loaded again next time.
+     *
+     * @param f The preset file which did not load cleanly.
+     */
+    void forget(final File f) {
+        this.dependencies.remove(f);
+        this.loaded.remove(f);
+        this.cached.remove(f);
+        this.hashes.remove(f);
+    }
+
+    /**
+     * Records the current state of the imports folder and the config settings. This
+     * should be called after any presets have been loaded, as imports may be updated
+     * while loading.
+     *
+     * @param imports Every import file currently in the imports folder.
+     */
+    void recordImports(final Collection<File> imports) {
+        this.imports.forEach(this.hashes::remove);
+        this.imports.clear();
+        this.imports.addAll(imports);
+        this.imports.forEach(this::updateHash);
+        this.settings = getSettings();
+    }
+
+    /**
+     * Drops every preset file which no longer exists.
+     *
+     * @param presets Every preset file currently in the presets folder.
+     */
+    void retainAll(final Collection<File> presets) {
+        final Set<File> retained = new HashSet<>(presets);
+        retained.addAll(this.imports);
+        this.hashes.keySet().retainAll(retained);
+        this.dependencies.keySet().retainAll(retained);
+        this.loaded.keySet().retainAll(retained);
+        this.cached.keySet().retainAll(retained);
+    }
+
+    boolean isEmpty() {
+        return this.loaded.isEmpty() && this.cached.isEmpty();
+    }
+
+    void clear() {
+        this.hashes.clear();
+        this.dependencies.clear();
+        this.loaded.clear();
+        this.cached.clear();
+        this.imports.clear();
+        this.settings = null;
+    }
+
+    /**
+     * Reads a previously written index from the disk. Any data written by another
+     * version of the mod or with different settings will be ignored.
+     *
+     * @param file The file containing the index.
+     */
+    void read(final File file) {
+        if (!file.exists()) {
+            return;
+        }
+        final JsonObject json;
+        try {
+            json = JsonValue.readJSON(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)).asObject();
+        } catch (final IOException | RuntimeException e) {
+            log.warn("Unable to read {}. Every preset will be loaded.", file.getName());
+            return;
+        }
+        final String settings = getSettings();
+        final String version = PlatformUtils.getModVersion();
+        if (version == null || !version.equals(json.getString(VERSION_KEY, null))
+                || !settings.equals(json.getString(SETTINGS_KEY, null))) {
+            log.debug("Preset cache is out of date. Every preset will be loaded.");
+            return;
+        }
+        this.clear();
+        try {
+            for (final JsonValue f : json.get(IMPORTS_KEY).asArray()) {
+                this.imports.add(new File(f.asString()));
+            }
+            for (final JsonObject.Member member : json.get(FILES_KEY).asObject()) {
+                this.readEntry(new File(member.getName()), member.getValue().asObject());
+            }
+        } catch (final RuntimeException e) {
+            log.warn("Preset cache is corrupt. Every preset will be loaded.");
+            this.clear();
+            return;
+        }
+        this.settings = settings;
+    }
+
+    private void readEntry(final File f, final JsonObject entry) {
+        final Set<File> required = new HashSet<>();
+        for (final JsonObject.Member dependency : entry.get(DEPENDENCIES_KEY).asObject()) {
+            final File d = new File(dependency.getName());
+            required.add(d);
+            this.hashes.put(d, dependency.getValue().asString());
+        }
+        final Map<String, JsonObject> presets = new HashMap<>();
+        for (final JsonObject.Member preset : entry.get(PRESETS_KEY).asObject()) {
+            presets.put(preset.getName(), preset.getValue().asObject());
+        }
+        this.hashes.put(f, entry.get(HASH_KEY).asString());
+        this.dependencies.put(f, required);
+        this.cached.put(f, presets);
+    }
+
+    /**
+     * Writes every preset which has loaded cleanly to the disk, along with the state
+     * of each of its input files.
+     *
+     * @param file The file which will contain the index.
+     */
+    void write(final File file) {
+        final String version = PlatformUtils.getModVersion();
+        if (version == null) {
+            return;
+        }
+        final JsonObject files = new JsonObject();
+        this.loaded.forEach((f, presets) -> {
+            final String hash = this.hashes.get(f);
+            if (hash == null) {
+                return;
+            }
+            final JsonObject required = new JsonObject();
+            for (final File d : this.dependencies.getOrDefault(f, Collections.emptySet())) {
+                final String dependencyHash = this.hashes.get(d);
+                if (dependencyHash == null) {
+                    return;
+                }
+                required.add(d.getPath(), dependencyHash);
+            }
+            final JsonObject generated = new JsonObject();
+            presets.forEach((name, preset) -> generated.add(name, preset.raw));
+            files.add(f.getPath(), new JsonObject()
+                .add(HASH_KEY, hash)
+                .add(DEPENDENCIES_KEY, required)
+                .add(PRESETS_KEY, generated));
+        });
+        final JsonArray imports = new JsonArray();
+        this.imports.forEach(f -> imports.add(f.getPath()));
+        final JsonObject json = new JsonObject()
+            .add(VERSION_KEY, version)
+            .add(SETTINGS_KEY, getSettings())
+            .add(IMPORTS_KEY, imports)
+            .add(FILES_KEY, files);
+        try {
+            mkdirsOrThrow(file.getParentFile());
+            Files.write(file.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException | RuntimeException e) {
+            log.warn("Unable to write {}. Presets will not be cached.", file.getName());
+        }
+    }
+
+    private void updateHash(final File f) {
+        final String hash = hash(f);
+        if (hash != null) {
+            this.hashes.put(f, hash);
+        } else {
+            this.hashes.remove(f);
+        }
+    }
+
+    /**
+     * Generates a content hash for every file in each collection.
+     *
+     * @param files Any number of collections containing preset files.
+     * @return The hash of each file which could be read.
+     */
+    @SafeVarargs
+    static Map<File, String> hashAll(final Collection<File>... files) {
+        final Map<File, String> hashes = new HashMap<>();
+        for (final Collection<File> collection : files) {
+            for (final File f : collection) {
+                final String hash = hash(f);
+                if (hash != null) {
+                    hashes.put(f, hash);
+                }
+            }
+        }
+        return hashes;
+    }
+
+    static @Nullable String hash(final File f) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(Files.readAllBytes(f.toPath()));
+            final StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (final IOException | NoSuchAlgorithmException e) {
+            log.debug("Unable to hash {}. It will be reloaded.", f.getName());
+            return null;
+        }
+    }
+
+    private static String getSettings() {
+        return Arrays.asList(Cfg.detectExtraTokens(), Cfg.shouldUpdatePresets(), Cfg.updateImports(),
+            Cfg.caveEL(), Cfg.deepTransforms(), Cfg.errorSeverity(), Cfg.warnSeverity()).toString();
+    }
+}
@@ -21,6 +21,7 @@ import personthecat.cavegenerator.io.ModFolders;
 import personthecat.cavegenerator.presets.CavePreset;
 import personthecat.cavegenerator.presets.CaveOutput;
 import personthecat.cavegenerator.presets.lang.CaveLangExtension;
+import personthecat.cavegenerator.presets.lang.ImportHelper;
 import personthecat.cavegenerator.presets.lang.SyntaxHelper;
 import personthecat.cavegenerator.util.Reference;
 import personthecat.fresult.Result;
@@ -33,7 +34,9 @@ import static personthecat.catlib.io.FileIO.mkdirsOrThrow;
 import static personthecat.catlib.util.PathUtils.extension;
 import static personthecat.catlib.util.PathUtils.noExtension;
 import static personthecat.catlib.util.Shorthand.f;
+import static personthecat.catlib.util.Shorthand.find;
 import static personthecat.cavegenerator.io.ModFolders.*;
+import static personthecat.cavegenerator.presets.lang.CaveLangExtension.DEFAULTS;
 
 @Log4j2
 public class PresetLoadingContext {
@@ -44,6 +47,10 @@ public class PresetLoadingContext {
     private static final SafeRegistry<String, File> IMPORTS =
         SafeRegistry.of(() -> collectPresets(ModFolders.IMPORT_DIR)).canBeReset(true);
 
+    private static final File CACHE_FILE = new File(ModFolders.CACHE_DIR, "presets.json");
+
+    private static final PresetIndex INDEX = new PresetIndex();
+
     private PresetLoadingContext() {}
 
     private static Map<String, File> collectPresets(final File dir) {
@@ -61,28 +68,74 @@ public class PresetLoadingContext {
     }
 
     public static Map<String, CavePreset> loadPresets() {
-        final Map<String, CaveOutput> presetOutput;
-        try {
-            final Context ctx = new Context();
-            presetOutput = ctx.getPresets();
-        } catch (final RuntimeException e) {
-            LibErrorContext.error(Reference.MOD, new PresetContextException(e));
-            return Collections.emptyMap();
+        final Collection<File> presetFiles = PRESETS.values();
+        final Collection<File> importFiles = IMPORTS.values();
+        if (INDEX.isEmpty()) {
+            INDEX.read(CACHE_FILE);
         }
+        final Set<File> stale = INDEX.getStale(presetFiles, importFiles, PresetIndex.hashAll(presetFiles, importFiles));
+        INDEX.retainAll(presetFiles);
+        final List<File> unchanged = new ArrayList<>(presetFiles);
+        unchanged.removeAll(stale);
+        stale.addAll(INDEX.restore(unchanged));
+
         final Map<String, CavePreset> presets = new HashMap<>();
-        mkdirsOrThrow(PRESET_DIR, IMPORT_DIR);
-        presetOutput.forEach((name, output) ->
-            CavePreset.from(name, output).ifPresent(preset -> {
-                onPresetLoaded(name);
-                presets.put(name, preset);
-            })
-        );
+        if (!stale.isEmpty()) {
+            try (final PresetTaskRunner runner = new PresetTaskRunner(Cfg.presetThreads())) {
+                final Context ctx;
+                final Map<File, Map<String, CaveOutput>> presetOutput;
+                try {
+                    ctx = new Context(runner, stale);
+                    presetOutput = ctx.getPresets();
+                } catch (final RuntimeException e) {
+                    LibErrorContext.error(Reference.MOD, new PresetContextException(e));
+                    INDEX.clear();
+                    return Collections.emptyMap();
+                }
+                mkdirsOrThrow(PRESET_DIR, IMPORT_DIR);
+                final Map<File, Map<String, CavePreset>> loaded =
+                    runner.run(presetOutput, PresetLoadingContext::createPresets);
+                loaded.forEach((file, generated) ->
+                    generated.forEach((name, preset) -> {
+                        onPresetLoaded(name);
+                        presets.put(name, preset);
+                    })
+                );
+                for (final File file : stale) {
+                    if (runner.hasFailed(file) || !loaded.containsKey(file)) {
+                        INDEX.forget(file);
+                    } else {
+                        INDEX.record(file, ctx.getDependencies(file), loaded.get(file));
+                    }
+                }
+            }
+        }
+        if (presetFiles.size() > stale.size()) {
+            log.info("Skipping {} unchanged preset files.", presetFiles.size() - stale.size());
+            for (final File file : presetFiles) {
+                if (!stale.contains(file)) {
+                    presets.putAll(INDEX.getLoaded(file));
+                }
+            }
+        }
+        INDEX.recordImports(importFiles);
+        if (!stale.isEmpty()) {
+            INDEX.write(CACHE_FILE);
+        }
         if (Cfg.autoGenerate()) {
             saveGenerated(presets);
         }
         return presets;
     }
 
+    private static Map<String, CavePreset> createPresets(
+            final File file, final Map<String, CaveOutput> outputs, final DeferredErrors errors) {
+        final Map<String, CavePreset> presets = new LinkedHashMap<>();
+        outputs.forEach((name, output) ->
+            CavePreset.from(name, output, errors).ifPresent(preset -> presets.put(name, preset)));
+        return presets;
+    }
+
     private static void onPresetLoaded(final String name) {
         log.info("Successfully loaded {}. It is enabled.", name);
     }
@@ -102,50 +155,61 @@ public class PresetLoadingContext {
     }
 
     public static @Nullable JsonObject readJson(final File file) {
-        final String contents = getContents(file);
+        return readJson(file, DeferredErrors.IMMEDIATE);
+    }
+
+    private static @Nullable JsonObject readJson(final File file, final DeferredErrors errors) {
+        final String contents = getContents(file, errors);
         if (contents == null) {
             return null;
         }
-        return readContents(file, contents);
+        return readContents(file, contents, errors);
     }
 
-    private static @Nullable String getContents(final File file) {
+    private static @Nullable String getContents(final File file, final DeferredErrors errors) {
         final Result<String, IOException> result = FileIO.readFile(file);
         final Optional<IOException> error = result.getErr();
         if (error.isPresent()) {
-            LibErrorContext.error(Reference.MOD, new CorruptPresetException(file.getName(), error.get()));
+            errors.error(new CorruptPresetException(file.getName(), error.get()));
             return null;
         }
         return result.unwrap();
     }
 
-    private static @Nullable JsonObject readContents(final File file, final String contents) {
+    private static @Nullable JsonObject readContents(final File file, final String contents, final DeferredErrors errors) {
         final Result<JsonValue, ParseException> result = HjsonUtils.readValue(contents);
         final Optional<ParseException> error = result.getErr();
         if (error.isPresent()) {
-            LibErrorContext.error(Reference.MOD, new PresetSyntaxException(file.getName(), contents, error.get()));
+            errors.error(new PresetSyntaxException(file.getName(), contents, error.get()));
             return null;
         }
         return result.unwrap().asObject();
     }
 
     private static class Context {
-        final Map<File, JsonObject> cavePresets = loadFiles(PRESETS);
-        final Map<File, JsonObject> importPresets = loadFiles(IMPORTS);
-        final Map<String, JsonObject> rawPresets = clonePresets(cavePresets);
-
-        static Map<File, JsonObject> loadFiles(final Map<String, File> files) {
-            final Map<File, JsonObject> parsed = new HashMap<>();
-            for (final File file : files.values()) {
-                final JsonObject json = readJson(file);
+        final PresetTaskRunner runner;
+        final Map<File, JsonObject> cavePresets;
+        final Map<File, JsonObject> importPresets;
+        final Map<String, JsonObject> rawPresets;
+        final Map<File, Set<File>> dependencies = new HashMap<>();
+
+        Context(final PresetTaskRunner runner, final Collection<File> presets) {
+            this.runner = runner;
+            this.cavePresets = this.loadFiles(presets);
+            this.importPresets = this.loadFiles(IMPORTS.values());
+            this.rawPresets = clonePresets(this.cavePresets);
+        }
+
+        Map<File, JsonObject> loadFiles(final Collection<File> files) {
+            return this.runner.run(files, (file, errors) -> {
+                final JsonObject json = readJson(file, errors);
                 if (json != null) {
-                    parsed.put(file, json);
                     log.debug("Successfully loaded {}.", file.getName());
                 } else {
                     log.warn("Unable to load {}. Check the error menu for details.", file.getName());
                 }
-            }
-            return parsed;
+                return json;
+            });
         }
 
         static Map<String, JsonObject> clonePresets(final Map<File, JsonObject> presets) {
@@ -158,53 +222,70 @@ public class PresetLoadingContext {
             return clones;
         }
 
-        Map<String, CaveOutput> getPresets() {
+        Map<File, Map<String, CaveOutput>> getPresets() {
             if (Cfg.detectExtraTokens()) {
                 this.runStringInspections();
             }
             if (Cfg.shouldUpdatePresets()) {
-                this.cavePresets.forEach(PresetCompat::transformPreset);
+                this.runner.forEach(this.cavePresets, PresetCompat::transformPreset);
             }
             if (Cfg.updateImports()) {
-                this.importPresets.forEach(PresetCompat::transformImport);
+                this.runner.forEach(this.importPresets, PresetCompat::transformImport);
             }
             if (Cfg.caveEL()) {
-                CaveLangExtension.expandAll(this.cavePresets, this.importPresets);
+                this.collectDependencies();
+                // Imports may depend on each other and must be expanded first.
+                CaveLangExtension.expandDefinitions(this.importPresets);
+                this.runner.forEach(this.cavePresets, (file, json) ->
+                    CaveLangExtension.expandPreset(this.importPresets, json));
             }
-            final Map<String, CaveOutput> extracted = extractAll(this.cavePresets);
-            if (Cfg.deepTransforms()) {
-                extracted.forEach((file, output) -> PresetCompat.transformPresetOnly(output.generated));
-            }
-            // Carefully track which fields get read by the codecs.
-            extracted.forEach((name, output) -> {
-                output.generated.setAllAccessed(false);
-                output.generated.get(CavePreset.INNER_KEY);
+            // Inner presets share values with their parent and must stay together.
+            return this.runner.run(this.cavePresets, (file, json, errors) -> this.extract(file, json));
+        }
+
+        void collectDependencies() {
+            final Optional<File> defaults = find(this.importPresets.keySet(), f -> DEFAULTS.equals(f.getName()));
+            this.cavePresets.forEach((file, json) -> {
+                final Set<File> required = ImportHelper.getDependencies(this.importPresets, json);
+                // VANILLA is copied implicitly.
+                defaults.ifPresent(required::add);
+                this.dependencies.put(file, required);
             });
-            return extracted;
+        }
+
+        Set<File> getDependencies(final File file) {
+            return this.dependencies.getOrDefault(file, Collections.emptySet());
         }
 
         void runStringInspections() {
-            inspect(this.cavePresets);
-            inspect(this.importPresets);
+            this.inspect(this.cavePresets);
+            this.inspect(this.importPresets);
         }
 
-        static void inspect(final Map<File, JsonObject> presets) {
-            presets.entrySet().removeIf(preset -> {
-                final List<String> messages = SyntaxHelper.getExtraneousTokens(preset.getValue());
+        void inspect(final Map<File, JsonObject> presets) {
+            final Map<File, Boolean> valid = this.runner.run(presets, (file, json, errors) -> {
+                final List<String> messages = SyntaxHelper.getExtraneousTokens(json);
                 if (!messages.isEmpty()) {
-                    LibErrorContext.error(Reference.MOD, new ExtraneousTokensException(
-                        preset.getKey().getName(), messages, preset.getValue()));
-                    return true;
+                    errors.error(new ExtraneousTokensException(file.getName(), messages, json));
+                    return false;
                 }
-                return false;
+                return true;
             });
+            presets.keySet().removeIf(file -> !valid.get(file));
         }
 
-        Map<String, CaveOutput> extractAll(final Map<File, JsonObject> presets) {
-            final Map<String, CaveOutput> extracted = new HashMap<>();
-            presets.forEach((file, json) -> {
-                final String name = noExtension(file);
-                this.extractRecursive(extracted, name, json, json, this.getUserPreset(name));
+        Map<String, CaveOutput> extract(final File file, final JsonObject json) {
+            final Map<String, CaveOutput> extracted = new LinkedHashMap<>();
+            final String name = noExtension(file);
+            this.extractRecursive(extracted, name, json, json, this.getUserPreset(name));
+
+            if (Cfg.deepTransforms()) {
+                extracted.forEach((n, output) -> PresetCompat.transformPresetOnly(output.generated));
+            }
+            // Carefully track which fields get read by the codecs.
+            extracted.forEach((n, output) -> {
+                output.generated.setAllAccessed(false);
+                output.generated.get(CavePreset.INNER_KEY);
             });
             return extracted;
         }
@@ -0,0 +1,146 @@
+package personthecat.cavegenerator.init;
+
+import lombok.AllArgsConstructor;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs a single stage of the preset loading pipeline for every file on a bounded
+ * {@link ForkJoinPool}. Files are always processed independently of one another,
+ * so the only shared state in any stage must be read-only.
+ *
+ * <p>
+ *  Results and errors are both collected in file order, which guarantees that the
+ *  output of each stage does not depend on the number of threads used.
+ * </p>
+ */
+class PresetTaskRunner implements AutoCloseable {
+
+    private final @Nullable ForkJoinPool pool;
+    private final Set<File> failed = new HashSet<>();
+
+    PresetTaskRunner(final int threads) {
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    /**
+     * Applies a task to every file in the given map.
+     *
+     * @param inputs The data being processed, mapped to its source file.
+     * @param task The function which transforms each value.
+     * @return The non-null outputs mapped to each file, sorted by file.
+     * @throws RuntimeException The first exception thrown by any task, in file order.
+     */
+    <V, R> Map<File, R> run(final Map<File, V> inputs, final Task<V, R> task) {
+        return this.run(inputs.keySet(), (f, errors) -> task.apply(f, inputs.get(f), errors));
+    }
+
+    /**
+     * Variant of {@link #run(Map, Task)} for tasks which do not produce a value.
+     *
+     * @param inputs The data being processed, mapped to its source file.
+     * @param task The function consuming each value.
+     */
+    <V> void forEach(final Map<File, V> inputs, final BiConsumer<File, V> task) {
+        this.run(inputs, (f, v, errors) -> {
+            task.accept(f, v);
+            return null;
+        });
+    }
+
+    /**
+     * Applies a task to every file in the given collection.
+     *
+     * @param files The files being processed.
+     * @param task The function which produces a value from each file.
+     * @return The non-null outputs mapped to each file, sorted by file.
+     * @throws RuntimeException The first exception thrown by any task, in file order.
+     */
+    <R> Map<File, R> run(final Collection<File> files, final FileTask<R> task) {
+        final List<File> sorted = new ArrayList<>(files);
+        Collections.sort(sorted);
+
+        final List<Outcome<R>> outcomes = new ArrayList<>(sorted.size());
+        if (this.pool == null || sorted.size() < 2) {
+            for (final File f : sorted) {
+                outcomes.add(execute(task, f));
+            }
+        } else {
+            final List<ForkJoinTask<Outcome<R>>> submitted = new ArrayList<>(sorted.size());
+            for (final File f : sorted) {
+                submitted.add(this.pool.submit(() -> execute(task, f)));
+            }
+            for (final ForkJoinTask<Outcome<R>> t : submitted) {
+                outcomes.add(t.join());
+            }
+        }
+
+        final Map<File, R> results = new LinkedHashMap<>();
+        RuntimeException first = null;
+        for (int i = 0; i < sorted.size(); i++) {
+            final Outcome<R> outcome = outcomes.get(i);
+            if (outcome.exception != null || !outcome.errors.isEmpty()) {
+                this.failed.add(sorted.get(i));
+            }
+            outcome.errors.flush();
+            if (outcome.exception != null) {
+                if (first == null) first = outcome.exception;
+            } else if (outcome.result != null) {
+                results.put(sorted.get(i), outcome.result);
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+        return results;
+    }
+
+    /**
+     * Indicates whether any stage has reported an error or thrown an exception for
+     * the given file.
+     *
+     * @param f The file being queried.
+     * @return <code>true</code>, if the file did not load cleanly.
+     */
+    boolean hasFailed(final File f) {
+        return this.failed.contains(f);
+    }
+
+    private static <R> Outcome<R> execute(final FileTask<R> task, final File f) {
+        final DeferredErrors errors = new DeferredErrors();
+        try {
+            return new Outcome<>(task.apply(f, errors), null, errors);
+        } catch (final RuntimeException e) {
+            return new Outcome<>(null, e, errors);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.pool != null) {
+            this.pool.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    interface Task<V, R> {
+        @Nullable R apply(final File f, final V value, final DeferredErrors errors);
+    }
+
+    @FunctionalInterface
+    interface FileTask<R> {
+        @Nullable R apply(final File f, final DeferredErrors errors);
+    }
+
+    @AllArgsConstructor
+    private static class Outcome<R> {
+        final @Nullable R result;
+        final @Nullable RuntimeException exception;
+        final DeferredErrors errors;
+    }
+}
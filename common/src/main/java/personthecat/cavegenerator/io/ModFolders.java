@@ -15,6 +15,7 @@ public class ModFolders {
     public static final File IMPORT_DIR = new File(CG_DIR, "imports");
     public static final File GENERATED_DIR = new File(CG_DIR, "generated");
     public static final File STRUCTURE_DIR = new File(CG_DIR, "structures");
+    public static final File CACHE_DIR = new File(CG_DIR, "cache");
 
     public static File root(final String name) {
         return new File(CG_DIR, name);
@@ -1,5 +1,8 @@
 package personthecat.cavegenerator.model;
 
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import lombok.extern.log4j.Log4j2;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.network.chat.TextComponent;
 import net.minecraft.server.MinecraftServer;
@@ -8,13 +11,27 @@ import net.minecraft.world.phys.Vec2;
 import net.minecraft.world.phys.Vec3;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * The source of every command run by cave generator features. Commands may be submitted
+ * from any world generation thread, but are only ever executed in batches on the server
+ * thread via {@link #flush}.
+ */
+@Log4j2
 public class CaveCommandSource {
 
     private static final String EXECUTOR = "Cave Executor";
 
+    /** The maximum number of commands which may be waiting to run at any given time. */
+    private static final int MAX_QUEUED = 16384;
+
     private final AtomicReference<CommandSourceStack> source = new AtomicReference<>();
+    private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
 
     @Nullable
     public CommandSourceStack get() {
@@ -30,7 +47,49 @@ public class CaveCommandSource {
         this.source.set(source);
     }
 
+    /**
+     * Queues a command to be run on the server thread. This method never blocks.
+     *
+     * @param cmd The raw command being executed, without a leading slash.
+     * @return <code>false</code>, if the queue is full and the command was dropped.
+     */
+    public boolean submit(final String cmd) {
+        if (this.queued.incrementAndGet() > MAX_QUEUED) {
+            this.queued.decrementAndGet();
+            return false;
+        }
+        this.queue.add(cmd);
+        return true;
+    }
+
+    /**
+     * Runs the oldest queued commands. This must only be called from the server thread.
+     *
+     * @param max The maximum number of commands to run.
+     */
+    public void flush(final int max) {
+        final CommandSourceStack source = this.source.get();
+        if (source == null) {
+            return;
+        }
+        final CommandDispatcher<CommandSourceStack> dispatcher = source.getServer().getCommands().getDispatcher();
+        for (int i = 0; i < max; i++) {
+            final String cmd = this.queue.poll();
+            if (cmd == null) {
+                return;
+            }
+            this.queued.decrementAndGet();
+            try {
+                dispatcher.execute(cmd, source);
+            } catch (final CommandSyntaxException e) {
+                log.error("Running " + cmd, e);
+            }
+        }
+    }
+
     public void clear() {
         this.source.set(null);
+        this.queue.clear();
+        this.queued.set(0);
     }
 }
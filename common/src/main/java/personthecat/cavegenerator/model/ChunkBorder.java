@@ -0,0 +1,107 @@
+package personthecat.cavegenerator.model;
+
+import java.util.Arrays;
+
+/**
+ * A reusable list of absolute x and z coordinates, each with an optional offset, which
+ * together form the border around any invalid chunks surrounding the current chunk.
+ *
+ * <p>
+ *  Coordinates are stored in parallel arrays of primitives. {@link #clear} only resets
+ *  the size and the arrays are never shrunk, which means that the same buffer can be
+ *  refilled in every chunk without any additional allocations.
+ * </p>
+ */
+public class ChunkBorder {
+
+    /** The value returned by {@link #nearest} when the border is empty. */
+    public static final int NONE = -1;
+
+    private int[] xs;
+    private int[] zs;
+    private int[] offsets;
+    private int size;
+
+    public ChunkBorder() {
+        this(64);
+    }
+
+    public ChunkBorder(final int capacity) {
+        this.xs = new int[capacity];
+        this.zs = new int[capacity];
+        this.offsets = new int[capacity];
+    }
+
+    public void add(final int x, final int z) {
+        this.add(x, z, 0);
+    }
+
+    public void add(final int x, final int z, final int offset) {
+        if (this.size == this.xs.length) {
+            final int capacity = this.size * 2;
+            this.xs = Arrays.copyOf(this.xs, capacity);
+            this.zs = Arrays.copyOf(this.zs, capacity);
+            this.offsets = Arrays.copyOf(this.offsets, capacity);
+        }
+        this.xs[this.size] = x;
+        this.zs[this.size] = z;
+        this.offsets[this.size] = offset;
+        this.size++;
+    }
+
+    /**
+     * Locates the point on this border which is closest to the given coordinates.
+     *
+     * @param x The absolute x-coordinate.
+     * @param z The absolute z-coordinate.
+     * @return The index of the nearest point, or else {@link #NONE}.
+     */
+    public int nearest(final int x, final int z) {
+        long shortest = Long.MAX_VALUE;
+        int nearest = NONE;
+        for (int i = 0; i < this.size; i++) {
+            final long dX = x - this.xs[i];
+            final long dZ = z - this.zs[i];
+            final long d = dX * dX + dZ * dZ;
+            if (d < shortest) {
+                shortest = d;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Gets the raw distance from the given coordinates to the nearest point on this border.
+     *
+     * @param x The absolute x-coordinate.
+     * @param z The absolute z-coordinate.
+     * @return The distance to the nearest point, or else {@link Double#MAX_VALUE}.
+     */
+    public double distance(final int x, final int z) {
+        final int i = this.nearest(x, z);
+        return i == NONE ? Double.MAX_VALUE : this.distance(i, x, z);
+    }
+
+    public double distance(final int i, final int x, final int z) {
+        final double dX = x - this.xs[i];
+        final double dZ = z - this.zs[i];
+        return Math.sqrt(dX * dX + dZ * dZ);
+    }
+
+    public int offset(final int i) {
+        return this.offsets[i];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public void clear() {
+        this.size = 0;
+    }
+}
@@ -9,7 +9,7 @@ import personthecat.cavegenerator.util.PositionPredicate;
  * spheres in a world, while simultaneously allowing generated spheres to be reused several
  * times each.
  */
-public class PositionFlags {
+public class PositionFlags implements PositionSet {
 
     /** Based on the size and offset of these data in raw memory. */
     private static final int Z_MASK = (1 << 4) - 1;
@@ -104,6 +104,11 @@ public class PositionFlags {
         return false;
     }
 
+    /** @return The number of positions currently stored in the data. */
+    public int size() {
+        return this.index;
+    }
+
     /** Resets the cursor to 0. No need to overwrite values. */
     public void reset() {
         this.index = 0;
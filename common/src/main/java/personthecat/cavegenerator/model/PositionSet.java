@@ -0,0 +1,11 @@
+package personthecat.cavegenerator.model;
+
+import personthecat.cavegenerator.util.PositionConsumer;
+
+/**
+ * Any collection of <em>relative</em> block positions in a single chunk which can be visited
+ * in order. This allows the same decorators to run over individual spheres or entire chunks.
+ */
+public interface PositionSet {
+    void forEach(PositionConsumer f);
+}
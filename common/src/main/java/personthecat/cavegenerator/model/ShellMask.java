@@ -0,0 +1,93 @@
+package personthecat.cavegenerator.model;
+
+import java.util.BitSet;
+
+/**
+ * A chunk-wide set of <em>relative</em> shell positions, each paired with the center height
+ * of the feature which produced it. Positions which have also been carved are tracked
+ * separately so that shells can be placed exactly once per block after every feature in
+ * the chunk has been carved.
+ */
+public class ShellMask {
+
+    /** Based on the size and offset of these data in raw memory. */
+    private static final int Z_MASK = (1 << 4) - 1;
+    private static final int Y_MASK = (1 << 8) - 1;
+
+    /** The number of blocks in a single chunk. */
+    private static final int VOLUME = 16 * 16 * 256;
+
+    private final BitSet shell = new BitSet(VOLUME);
+    private final BitSet carved = new BitSet(VOLUME);
+    private int[] positions = new int[256];
+    private int[] centers = new int[256];
+    private int index;
+
+    /**
+     * Appends a new shell position into the data, unless it is already present.
+     *
+     * @param x  The x-coordinate being stored.
+     * @param y  The y-coordinate being stored.
+     * @param z  The z-coordinate being stored.
+     * @param cY The center height of the feature surrounded by this shell.
+     */
+    public void add(final int x, final int y, final int z, final int cY) {
+        final int data = x << 12 | z << 8 | y;
+        if (this.shell.get(data)) {
+            return;
+        }
+        this.shell.set(data);
+        if (this.index == this.positions.length) {
+            this.grow();
+        }
+        this.positions[this.index] = data;
+        this.centers[this.index++] = cY;
+    }
+
+    /**
+     * Indicates that a position has been carved and must not be covered by a shell.
+     *
+     * @param x The x-coordinate being stored.
+     * @param y The y-coordinate being stored.
+     * @param z The z-coordinate being stored.
+     */
+    public void carve(final int x, final int y, final int z) {
+        this.carved.set(x << 12 | z << 8 | y);
+    }
+
+    /**
+     * Completes an operation for each shell position which was not also carved.
+     *
+     * @param f Instructions for what to do when given 3 coordinates and a center height.
+     */
+    public void forEach(final ShellConsumer f) {
+        for (int i = 0; i < this.index; i++) {
+            final int data = this.positions[i];
+            if (!this.carved.get(data)) {
+                f.accept(data >> 12, data & Y_MASK, data >> 8 & Z_MASK, this.centers[i]);
+            }
+        }
+    }
+
+    /** Clears all data from the mask and resets its cursor. */
+    public void reset() {
+        this.shell.clear();
+        this.carved.clear();
+        this.index = 0;
+    }
+
+    private void grow() {
+        final int len = this.positions.length * 2;
+        final int[] positions = new int[len];
+        final int[] centers = new int[len];
+        System.arraycopy(this.positions, 0, positions, 0, this.index);
+        System.arraycopy(this.centers, 0, centers, 0, this.index);
+        this.positions = positions;
+        this.centers = centers;
+    }
+
+    @FunctionalInterface
+    public interface ShellConsumer {
+        void accept(int x, int y, int z, int cY);
+    }
+}
@@ -0,0 +1,72 @@
+package personthecat.cavegenerator.model;
+
+import lombok.AllArgsConstructor;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free cache of the heights returned by a single tunnel socket. Each
+ * column is identified by its absolute coordinates and an additional key derived from
+ * any random values consumed by the socket, which must still be drawn before querying
+ * this cache.
+ *
+ * <p>
+ *  Entries are stored in a fixed number of slots. Any entry may be replaced when another
+ *  column is written into its slot, which means that memory usage never grows with the
+ *  size of the world.
+ * </p>
+ */
+public class SocketHeightCache {
+
+    /** The value returned when a column has not been cached. */
+    public static final int MISSING = Integer.MAX_VALUE;
+
+    /** The number of slots in each cache. Must be a power of 2. */
+    private static final int SIZE = 8192;
+
+    private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(SIZE);
+
+    /**
+     * Retrieves the height of a socket in the given column, if present.
+     *
+     * @param x   The absolute x-coordinate of the column.
+     * @param z   The absolute z-coordinate of the column.
+     * @param key Any additional data used to produce this height.
+     * @return The cached height, or else {@link #MISSING}.
+     */
+    public int get(final int x, final int z, final int key) {
+        final Entry entry = this.entries.get(index(x, z, key));
+        if (entry != null && entry.x == x && entry.z == z && entry.key == key) {
+            return entry.height;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Records the height of a socket in the given column.
+     *
+     * @param x      The absolute x-coordinate of the column.
+     * @param z      The absolute z-coordinate of the column.
+     * @param key    Any additional data used to produce this height.
+     * @param height The height of the socket in this column.
+     * @return The height, for convenience.
+     */
+    public int put(final int x, final int z, final int key, final int height) {
+        this.entries.set(index(x, z, key), new Entry(x, z, key, height));
+        return height;
+    }
+
+    private static int index(final int x, final int z, final int key) {
+        int h = x * 0x9E3779B1 ^ z * 0x85EBCA77 ^ key * 0xC2B2AE3D;
+        h ^= h >>> 16;
+        return h & (SIZE - 1);
+    }
+
+    @AllArgsConstructor
+    private static class Entry {
+        final int x;
+        final int z;
+        final int key;
+        final int height;
+    }
+}
@@ -200,10 +200,26 @@ public class TunnelPathInfo {
     }
 
     public boolean travelledTooFar(final PrimerContext ctx, final int currentPos, final int distance) {
-        final double fromCenterX = x - ctx.centerX;
-        final double fromCenterZ = z - ctx.centerZ;
+        return travelledTooFar(x, z, scale, ctx.centerX, ctx.centerZ, distance - currentPos);
+    }
+
+    /**
+     * Variant of {@link #travelledTooFar(PrimerContext, int, int)} which can be evaluated
+     * for any chunk from a recorded point along the path.
+     *
+     * @param x         The x-coordinate of the path at this point.
+     * @param z         The z-coordinate of the path at this point.
+     * @param scale     The scale of the path at this point.
+     * @param centerX   The absolute center x-coordinate of the chunk being generated.
+     * @param centerZ   The absolute center z-coordinate of the chunk being generated.
+     * @param remaining The number of segments remaining in the path.
+     * @return <code>true</code>, if the path should stop generating in this chunk.
+     */
+    public static boolean travelledTooFar(float x, float z, float scale, int centerX, int centerZ, int remaining) {
+        final double fromCenterX = x - centerX;
+        final double fromCenterZ = z - centerZ;
         // Name? Is this related to Y?
-        final double distanceRemaining = distance - currentPos;
+        final double distanceRemaining = remaining;
         final double adjustedScale = scale + 18.00;
 
         final double fromCenterX2 = fromCenterX * fromCenterX;
@@ -215,9 +231,13 @@ public class TunnelPathInfo {
     }
 
     public boolean touchesChunk(final PrimerContext ctx, final double diameterXZ) {
-        return x >= ctx.centerX - 16.0 - diameterXZ
-            && z >= ctx.centerZ - 16.0 - diameterXZ
-            && x <= ctx.centerX + 16.0 + diameterXZ
-            && z <= ctx.centerZ + 16.0 + diameterXZ;
+        return touchesChunk(x, z, ctx.centerX, ctx.centerZ, diameterXZ);
     }
-}
\ No newline at end of file
+
+    public static boolean touchesChunk(double x, double z, int centerX, int centerZ, double diameterXZ) {
+        return x >= centerX - 16.0 - diameterXZ
+            && z >= centerZ - 16.0 - diameterXZ
+            && x <= centerX + 16.0 + diameterXZ
+            && z <= centerZ + 16.0 + diameterXZ;
+    }
+}
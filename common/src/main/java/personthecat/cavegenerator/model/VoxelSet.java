@@ -0,0 +1,131 @@
+package personthecat.cavegenerator.model;
+
+import personthecat.cavegenerator.util.PositionConsumer;
+import personthecat.cavegenerator.util.PositionPredicate;
+
+/**
+ * A set of <em>relative</em> block positions in a single chunk, stored as one bit per block.
+ * Unlike {@link PositionFlags}, this set never grows and always holds each position once.
+ *
+ * <p>
+ *  Positions are always iterated in ascending order of <code>x &lt;&lt; 12 | z &lt;&lt; 8 | y
+ *  </code>, which is the order in which column-based generators visit them. Each 16x256
+ *  slice on the x-axis also tracks which of its words contain data, so that iterating and
+ *  clearing sparse sets only ever touches the words which are in use.
+ * </p>
+ */
+public class VoxelSet implements PositionSet {
+
+    /** The number of 64-bit words used to represent a full chunk. */
+    private static final int WORDS = 16 * 16 * 256 / 64;
+
+    /** Based on the size and offset of these data in raw memory. */
+    private static final int Z_MASK = (1 << 4) - 1;
+    private static final int Y_MASK = (1 << 8) - 1;
+
+    private final long[] words = new long[WORDS];
+    private final long[] slices = new long[16];
+    private int size;
+
+    /**
+     * Adds a position into the set. Callers must be sure that x, y, and z are within chunk bounds.
+     *
+     * @param x The x-coordinate being stored.
+     * @param y The y-coordinate being stored.
+     * @param z The z-coordinate being stored.
+     * @return <code>true</code>, if the position was not already present.
+     */
+    public boolean add(final int x, final int y, final int z) {
+        final int i = x << 12 | z << 8 | y;
+        final int w = i >>> 6;
+        final long bit = 1L << i;
+        final long word = this.words[w];
+        if ((word & bit) != 0) {
+            return false;
+        }
+        this.words[w] = word | bit;
+        this.slices[x] |= 1L << (w & 63);
+        this.size++;
+        return true;
+    }
+
+    /**
+     * Determines whether the given position is present in the set.
+     *
+     * @param x The x-coordinate being tested.
+     * @param y The y-coordinate being tested.
+     * @param z The z-coordinate being tested.
+     * @return <code>true</code>, if the position is present.
+     */
+    public boolean contains(final int x, final int y, final int z) {
+        final int i = x << 12 | z << 8 | y;
+        return (this.words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Completes an operation for each position currently stored in the set.
+     *
+     * @param f Instructions for what to do when given 3 coordinates.
+     */
+    public void forEach(final PositionConsumer f) {
+        for (int x = 0; x < 16; x++) {
+            long slice = this.slices[x];
+            while (slice != 0) {
+                final int w = x << 6 | Long.numberOfTrailingZeros(slice);
+                slice &= slice - 1;
+                long word = this.words[w];
+                while (word != 0) {
+                    final int i = w << 6 | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    f.accept(x, i & Y_MASK, i >> 8 & Z_MASK);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a test on each of the positions in the set.
+     *
+     * @param predicate A condition to test at each position.
+     * @return Whether any predicate returns true.
+     */
+    public boolean anyMatches(final PositionPredicate predicate) {
+        for (int x = 0; x < 16; x++) {
+            long slice = this.slices[x];
+            while (slice != 0) {
+                final int w = x << 6 | Long.numberOfTrailingZeros(slice);
+                slice &= slice - 1;
+                long word = this.words[w];
+                while (word != 0) {
+                    final int i = w << 6 | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (predicate.test(x, i & Y_MASK, i >> 8 & Z_MASK)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** @return The number of positions currently stored in the set. */
+    public int size() {
+        return this.size;
+    }
+
+    /** Removes every position from the set, only clearing the words which are in use. */
+    public void reset() {
+        if (this.size == 0) {
+            return;
+        }
+        for (int x = 0; x < 16; x++) {
+            long slice = this.slices[x];
+            while (slice != 0) {
+                this.words[x << 6 | Long.numberOfTrailingZeros(slice)] = 0L;
+                slice &= slice - 1;
+            }
+            this.slices[x] = 0L;
+        }
+        this.size = 0;
+    }
+}
@@ -0,0 +1,73 @@
+package personthecat.cavegenerator.model;
+
+import net.minecraft.world.level.block.state.BlockState;
+import personthecat.cavegenerator.world.config.WallDecoratorConfig;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A compiled view of {@link WallDecoratorMap} which pairs the decorators in each direction
+ * with the combined height bounds and block matchers of the entire group. This allows the
+ * cheapest filters to be tested for every decorator in a direction at once, before any noise
+ * is sampled.
+ */
+public class WallDecoratorTable {
+
+    public final Group all;
+    public final Group side;
+    public final Group up;
+    public final Group down;
+    public final Group north;
+    public final Group south;
+    public final Group east;
+    public final Group west;
+
+    public WallDecoratorTable(final WallDecoratorMap map) {
+        this.all = new Group(map.all);
+        this.side = new Group(map.side);
+        this.up = new Group(map.up);
+        this.down = new Group(map.down);
+        this.north = new Group(map.north);
+        this.south = new Group(map.south);
+        this.east = new Group(map.east);
+        this.west = new Group(map.west);
+    }
+
+    public static class Group {
+        public final List<WallDecoratorConfig> decorators;
+        public final Set<BlockState> matchers = new HashSet<>();
+        private final int minY;
+        private final int maxY;
+
+        Group(final List<WallDecoratorConfig> decorators) {
+            this.decorators = decorators;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (final WallDecoratorConfig decorator : decorators) {
+                this.matchers.addAll(decorator.matchers);
+                min = Math.min(min, decorator.height.min);
+                max = Math.max(max, decorator.height.max);
+            }
+            this.minY = min;
+            this.maxY = max;
+        }
+
+        /**
+         * @param y The y-coordinate of the block being decorated.
+         * @return Whether any decorator in this group can spawn at this height.
+         */
+        public boolean containsHeight(final int y) {
+            return y >= this.minY && y <= this.maxY;
+        }
+
+        /**
+         * @param state The block being decorated.
+         * @return Whether any decorator in this group can spawn on this block.
+         */
+        public boolean matchesBlock(final BlockState state) {
+            return this.matchers.contains(state);
+        }
+    }
+}
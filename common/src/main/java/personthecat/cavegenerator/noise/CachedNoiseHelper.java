@@ -1,21 +1,51 @@
 package personthecat.cavegenerator.noise;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 public class CachedNoiseHelper {
 
     private static final Map<Integer, Cache> DATA = new ConcurrentHashMap<>();
 
+    /** The hashes of every cache requested on this thread while tracking, if any. */
+    private static final ThreadLocal<Set<Integer>> TRACKED = new ThreadLocal<>();
+
     public static Cache getOrCreate(int hash) {
-        final Cache pull = DATA.get(hash);
-        if (pull != null) {
-            return pull;
+        final Set<Integer> tracked = TRACKED.get();
+        if (tracked != null) {
+            tracked.add(hash);
+        }
+        return DATA.computeIfAbsent(hash, h -> new Cache());
+    }
+
+    /**
+     * Records the hash of every cache requested by a task on the current thread.
+     *
+     * @param hashes Receives the hash of each cache.
+     * @param task   The task being tracked, e.g. compiling a preset.
+     * @return The output of the task.
+     */
+    public static <T> T track(final Set<Integer> hashes, final Supplier<T> task) {
+        final Set<Integer> previous = TRACKED.get();
+        TRACKED.set(hashes);
+        try {
+            return task.get();
+        } finally {
+            TRACKED.set(previous);
         }
-        final Cache push = new Cache();
-        DATA.put(hash, push);
-        return push;
+    }
+
+    /**
+     * Drops every cache which is no longer referenced by any generator.
+     *
+     * @param hashes The hash of every cache still in use.
+     */
+    public static void retainAll(final Collection<Integer> hashes) {
+        DATA.keySet().retainAll(hashes);
     }
 
     public static void resetAll() {
@@ -3,10 +3,10 @@ package personthecat.cavegenerator.presets;
 import lombok.AllArgsConstructor;
 import org.hjson.JsonObject;
 import personthecat.catlib.data.JsonPath;
-import personthecat.catlib.event.error.LibErrorContext;
 import personthecat.catlib.util.HjsonUtils;
 import personthecat.cavegenerator.config.Cfg;
 import personthecat.cavegenerator.exception.InvalidPresetArgumentException;
+import personthecat.cavegenerator.init.DeferredErrors;
 import personthecat.cavegenerator.presets.data.CaveSettings;
 import personthecat.cavegenerator.presets.data.OverrideSettings;
 import personthecat.cavegenerator.presets.resolver.DecoratorStateResolver;
@@ -14,7 +14,6 @@ import personthecat.cavegenerator.presets.validator.CavePresetValidator;
 import personthecat.cavegenerator.presets.validator.RequiredFieldLocator;
 import personthecat.cavegenerator.presets.validator.UnusedFieldLocator;
 import personthecat.cavegenerator.presets.validator.ValidationContext;
-import personthecat.cavegenerator.util.Reference;
 import personthecat.cavegenerator.world.GeneratorController;
 
 import java.util.Optional;
@@ -31,14 +30,17 @@ public class CavePreset {
     public static final String INNER_KEY = "inner";
 
     public static Optional<CavePreset> from(final String name, final CaveOutput output) {
+        return from(name, output, DeferredErrors.IMMEDIATE);
+    }
+
+    public static Optional<CavePreset> from(final String name, final CaveOutput output, final DeferredErrors errors) {
         if (!isEnabled(output.generated)) {
             return Optional.empty();
         }
         try {
             final RequiredFieldLocator requiredFields = new RequiredFieldLocator(output.generated);
             if (requiredFields.hasErrors()) {
-                LibErrorContext.register(
-                    Cfg.errorSeverity(), Reference.MOD, requiredFields.createScreen(name));
+                errors.register(Cfg.errorSeverity(), requiredFields.createScreen(name));
                 return Optional.empty();
             }
             final CaveSettings raw = HjsonUtils.readThrowing(CaveSettings.CODEC, output.generated);
@@ -47,26 +49,54 @@ public class CavePreset {
 
             final UnusedFieldLocator unusedFields = new UnusedFieldLocator(output.generated);
             if (unusedFields.hasErrors()) {
-                LibErrorContext.register(
-                    Cfg.warnSeverity(), Reference.MOD, unusedFields.createScreen(name));
+                errors.register(Cfg.warnSeverity(), unusedFields.createScreen(name));
             }
             final ValidationContext ctx = CavePresetValidator.start(raw, overrides, createPath(name));
             if (ctx.hasWarnings()) {
-                LibErrorContext.register(
-                    Cfg.warnSeverity(), Reference.MOD, ctx.createWarningScreen(name, output));
+                errors.register(Cfg.warnSeverity(), ctx.createWarningScreen(name, output));
             }
             if (ctx.hasErrors()) {
-                LibErrorContext.register(
-                    Cfg.errorSeverity(), Reference.MOD, ctx.createErrorScreen(name, output));
+                errors.register(Cfg.errorSeverity(), ctx.createErrorScreen(name, output));
             } else {
                 return Optional.of(new CavePreset(raw.withOverrides(overrides), name, output.generated));
             }
         } catch (final RuntimeException e) {
-            LibErrorContext.error(Reference.MOD, new InvalidPresetArgumentException(name, e));
+            errors.error(new InvalidPresetArgumentException(name, e));
         }
         return Optional.empty();
     }
 
+    /**
+     * Decodes a preset which has previously been expanded. The preset is validated again,
+     * as the installed mods and registries may have changed since it was cached. Instead
+     * of reporting any problems, this method fails so that the preset can be loaded from
+     * its source and reported as usual.
+     *
+     * @param name The name of the preset being decoded.
+     * @param generated The fully expanded preset JSON.
+     * @return The decoded preset.
+     * @throws RuntimeException If the data cannot be decoded or is no longer valid.
+     */
+    public static CavePreset fromCache(final String name, final JsonObject generated) {
+        // Track which fields get read by the codecs, exactly as when loading from the source.
+        generated.setAllAccessed(false);
+        generated.get(INNER_KEY);
+        if (!isEnabled(generated) || new RequiredFieldLocator(generated).hasErrors()) {
+            throw new IllegalStateException("Cached preset is disabled or has missing fields: " + name);
+        }
+        final CaveSettings raw = HjsonUtils.readThrowing(CaveSettings.CODEC, generated);
+        final OverrideSettings overrides = HjsonUtils.readThrowing(OverrideSettings.CODEC, generated)
+            .withGlobalDecorators(DecoratorStateResolver.resolveBlockStates(generated));
+        if (new UnusedFieldLocator(generated).hasErrors()) {
+            throw new IllegalStateException("Cached preset has unused fields: " + name);
+        }
+        final ValidationContext ctx = CavePresetValidator.start(raw, overrides, createPath(name));
+        if (ctx.hasErrors() || ctx.hasWarnings()) {
+            throw new IllegalStateException("Cached preset is no longer valid: " + name);
+        }
+        return new CavePreset(raw.withOverrides(overrides), name, generated);
+    }
+
     public static boolean isEnabled(final JsonObject json) {
         return HjsonUtils.getBool(json, ENABLED_KEY).orElse(true);
     }
@@ -44,6 +44,17 @@ public class CaveLangExtension {
      * @param definitions A map of all JSON objects in the <code>imports</code> folder.
      */
     public static void expandAll(final Map<File, JsonObject> presets, final Map<File, JsonObject> definitions) {
+        expandDefinitions(definitions);
+        presets.forEach((f, json) -> expandPreset(definitions, json));
+    }
+
+    /**
+     * Expands every variable definition in the <code>imports</code> folder. This must
+     * run once before any preset can be expanded by {@link #expandPreset}.
+     *
+     * @param definitions A map of all JSON objects in the <code>imports</code> folder.
+     */
+    public static void expandDefinitions(final Map<File, JsonObject> definitions) {
         // Automatically copy variables to the root level in imports.
         definitions.forEach((f, json) -> variablesToRoot(json));
         // Replace inner references so that invalid keys do not get copied out.
@@ -54,16 +65,27 @@ public class CaveLangExtension {
         definitions.forEach((f, json) -> expand(json));
         // Strip unused variables, so they don't cause issues later.
         definitions.forEach((f, json) -> stripPrivateValues(definitions, json));
-        // Copy each import directly into each json.
-        presets.forEach((f, json) -> copyImports(definitions, json, false));
+    }
+
+    /**
+     * Expands a single preset using definitions which have already been expanded.
+     * Each preset receives its own copy of any imported data, which means separate
+     * presets may safely be expanded on separate threads.
+     *
+     * @param definitions A map of all <b>expanded</b> JSON objects in the imports folder.
+     * @param json The preset being expanded in place.
+     */
+    public static void expandPreset(final Map<File, JsonObject> definitions, final JsonObject json) {
+        // Copy each import directly into the json.
+        copyImports(definitions, json, false);
         // Copy defaults.cave as VANILLA implicitly, if absent.
-        copyVanilla(presets, definitions);
-        // Expand the variables now within each json.
-        presets.forEach((f, json) -> expandVariables(json));
-        // Evaluate any arithmetic expressions in all presets.
-        presets.forEach((f, json) -> calculateAll(json));
+        copyVanilla(definitions, json);
+        // Expand the variables now within the json.
+        expandVariables(json);
+        // Evaluate any arithmetic expressions in the preset.
+        calculateAll(json);
         // Delete the now unneeded imports and variables.
-        presets.forEach((f, json) -> deleteUnused(json));
+        deleteUnused(json);
     }
 
     /**
@@ -145,8 +167,13 @@ public class CaveLangExtension {
             }
         });
         // copy the contents of each import into variables.
-        final JsonObject variables = root ? json : HjsonUtils.getObjectOrNew(json, VARIABLES);
-        imports.forEach(variables::addAll);
+        if (root) {
+            imports.forEach(json::addAll);
+        } else {
+            // Presets get their own copy, as expansion will modify these values.
+            final JsonObject variables = HjsonUtils.getObjectOrNew(json, VARIABLES);
+            imports.forEach(i -> variables.addAll((JsonObject) i.deepCopy()));
+        }
     }
 
     /**
@@ -201,21 +228,19 @@ public class CaveLangExtension {
      * other variable still needs to be imported manually. I may quickly remove this
      * implicit variable if that turns out to be the case.
      *
-     * @param presets The main preset files mapped to their parent files.
      * @param definitions A map of all JSON objects in the <code>imports</code> folder.
+     * @param json The preset receiving a copy of the default values.
      */
-    private static void copyVanilla(final Map<File, JsonObject> presets, final Map<File, JsonObject> definitions) {
+    private static void copyVanilla(final Map<File, JsonObject> definitions, final JsonObject json) {
         // This should not be possible anyway.
         final JsonObject vanilla = getDefaults(definitions)
             .orElseThrow(() -> caveSyntax(DEFAULTS + " may not be renamed or deleted."));
         // Add this value implicitly in every preset.
         // It will be removed if unused.
-        for (final JsonObject json : presets.values()) {
-            final JsonObject variables = HjsonUtils.getObjectOrNew(json, VARIABLES);
-            // Users can declare their own variables called VANILLA.
-            if (!variables.has(VANILLA)) {
-                variables.add(VANILLA, vanilla);
-            }
+        final JsonObject variables = HjsonUtils.getObjectOrNew(json, VARIABLES);
+        // Users can declare their own variables called VANILLA.
+        if (!variables.has(VANILLA)) {
+            variables.add(VANILLA, vanilla.deepCopy());
         }
     }
 
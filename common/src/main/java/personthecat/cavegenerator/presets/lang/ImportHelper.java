@@ -108,6 +108,37 @@ public class ImportHelper {
         }
     }
 
+    /**
+     * Collects every import file which a JSON object depends on, either directly or
+     * through other imports. Expressions which cannot be resolved are ignored here, as
+     * they will be reported when the JSON is expanded.
+     *
+     * @param definitions A map of all JSON objects in the imports folder.
+     * @param json The JSON object which may contain an imports array.
+     * @return Every file in <code>definitions</code> required by this JSON.
+     */
+    public static Set<File> getDependencies(final Map<File, JsonObject> definitions, final JsonObject json) {
+        final Set<File> dependencies = new HashSet<>();
+        collectDependencies(definitions, json, dependencies);
+        return dependencies;
+    }
+
+    private static void collectDependencies(final Map<File, JsonObject> definitions, final JsonObject json, final Set<File> dependencies) {
+        final JsonValue imports = json.get(CaveLangExtension.IMPORTS);
+        if (imports == null) {
+            return;
+        }
+        for (final JsonValue exp : HjsonUtils.asOrToArray(imports)) {
+            if (exp.isString()) {
+                new Import(exp.asString()).loadEntry(definitions).ifPresent(e -> {
+                    if (dependencies.add(e.getKey())) {
+                        collectDependencies(definitions, e.getValue(), dependencies);
+                    }
+                });
+            }
+        }
+    }
+
     /** Returns the list of keys that were imported by this expression. */
     public static List<String> getKeys(final Map<File, JsonObject> definitions, final String exp) {
         Objects.requireNonNull(exp, "Imports may not be null");
@@ -162,12 +193,16 @@ public class ImportHelper {
         }
 
         Optional<JsonObject> loadObject(final Map<File, JsonObject> definitions) {
-            final JsonObject root = definitions.get(new File(ModFolders.IMPORT_DIR, this.filename));
+            return this.loadEntry(definitions).map(Map.Entry::getValue);
+        }
+
+        Optional<Map.Entry<File, JsonObject>> loadEntry(final Map<File, JsonObject> definitions) {
+            final File file = new File(ModFolders.IMPORT_DIR, this.filename);
+            final JsonObject root = definitions.get(file);
             if (root != null) {
-                return full(root);
+                return full(new AbstractMap.SimpleEntry<>(file, root));
             }
-            return find(definitions.entrySet(), e -> this.matches(e.getKey()))
-                .map(Map.Entry::getValue);
+            return find(definitions.entrySet(), e -> this.matches(e.getKey()));
         }
 
         Optional<JsonObject> tryLoadObject() {
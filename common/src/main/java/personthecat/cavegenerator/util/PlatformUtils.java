@@ -0,0 +1,35 @@
+package personthecat.cavegenerator.util;
+
+import net.minecraft.world.level.block.EntityBlock;
+import net.minecraft.world.level.block.state.BlockState;
+import org.jetbrains.annotations.Nullable;
+import personthecat.catlib.exception.MissingOverrideException;
+import personthecat.overwritevalidator.annotations.OverwriteTarget;
+import personthecat.overwritevalidator.annotations.PlatformMustOverwrite;
+
+/** Provides information which can only be read from the current mod loader. */
+@OverwriteTarget
+public class PlatformUtils {
+
+    /**
+     * Reads the version of this mod from the platform's mod metadata, which is filled in
+     * by the build.
+     *
+     * @return The installed version of this mod, or else <code>null</code> if unknown.
+     */
+    @PlatformMustOverwrite
+    public static @Nullable String getModVersion() {
+        throw new MissingOverrideException();
+    }
+
+    /**
+     * Determines whether the given block state is backed by a block entity. Some platforms
+     * allow this to depend on the state, rather than on the block alone.
+     *
+     * @param state The block state being tested.
+     * @return <code>true</code>, if placing or removing this state affects a block entity.
+     */
+    public static boolean hasBlockEntity(final BlockState state) {
+        return state.getBlock() instanceof EntityBlock;
+    }
+}
@@ -87,6 +87,26 @@ public class XoRoShiRo extends Random {
         }
     }
 
+    /**
+     * Copies the current random words out of this generator. This state can later be
+     * restored by {@link #setState} to replay any values generated after this point.
+     *
+     * @return An array containing the two current random words.
+     */
+    public long[] getState() {
+        return new long[] { this.s0, this.s1 };
+    }
+
+    /**
+     * Restores a state previously copied out of this generator by {@link #getState}.
+     *
+     * @param state An array containing the two random words.
+     */
+    public void setState(final long[] state) {
+        this.s0 = state[0];
+        this.s1 = state[1];
+    }
+
     @Override
     public void setSeed(final long seed) {
         // Restore the previous initial state if the seed hasn't changed
@@ -0,0 +1,115 @@
+package personthecat.cavegenerator.world;
+
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.biome.BiomeSource;
+import net.minecraft.world.level.chunk.ProtoChunk;
+import personthecat.catlib.data.DimensionPredicate;
+import personthecat.cavegenerator.world.config.ConditionConfig;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Maps each dimension to a view of every generator controller containing only the
+ * generators which can spawn there. Each view is built the first time a dimension
+ * is generated, which means that generators no longer need to check their dimension
+ * conditions in every chunk.
+ *
+ * <p>
+ *  Chunk primers do not provide access to their level, so carvers are instead indexed
+ *  by the biome source of the chunk generator. Each dimension is expected to own its
+ *  biome source.
+ * </p>
+ */
+public class DimensionIndex {
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
+
+    /**
+     * Replaces every controller in the index and clears any existing views.
+     *
+     * @param controllers Every generator controller, in generation order.
+     */
+    public void rebuild(final Collection<GeneratorController> controllers) {
+        this.snapshot = new Snapshot(new ArrayList<>(controllers));
+    }
+
+    /**
+     * Gets every controller which may carve in the dimension owning this biome source.
+     *
+     * @param source The biome source of the current chunk generator.
+     * @param chunk  The chunk being carved, used to test dimension conditions.
+     * @return Every controller with any generator able to spawn in this dimension.
+     */
+    public List<GeneratorController> getCarvers(final BiomeSource source, final ProtoChunk chunk) {
+        final Snapshot snapshot = this.snapshot;
+        return snapshot.carvers.computeIfAbsent(source, s -> snapshot.filter(c -> c.dimensions.test(chunk)));
+    }
+
+    /**
+     * Variant of {@link #getCarvers(BiomeSource, ProtoChunk)} for contexts where the
+     * biome source is unknown. Views are instead cached by which dimension conditions
+     * pass in this chunk, which is the same for every chunk in a dimension.
+     *
+     * @param chunk The chunk being carved, used to test dimension conditions.
+     * @return Every controller with any generator able to spawn in this dimension.
+     */
+    public List<GeneratorController> getCarvers(final ProtoChunk chunk) {
+        final Snapshot snapshot = this.snapshot;
+        final BitSet matches = new BitSet(snapshot.dimensions.size());
+        for (int i = 0; i < snapshot.dimensions.size(); i++) {
+            if (snapshot.dimensions.get(i).test(chunk)) {
+                matches.set(i);
+            }
+        }
+        return snapshot.matches.computeIfAbsent(matches, m -> snapshot.filter(c -> m.get(snapshot.indices.get(c.dimensions))));
+    }
+
+    /**
+     * Gets every controller which may place features in the given level.
+     *
+     * @param level The level in which features are being placed.
+     * @return Every controller with any generator able to spawn in this dimension.
+     */
+    public List<GeneratorController> getFeatures(final ServerLevel level) {
+        final Snapshot snapshot = this.snapshot;
+        return snapshot.features.computeIfAbsent(level.dimension(), d -> snapshot.filter(c -> c.dimensions.test(level)));
+    }
+
+    private static class Snapshot {
+        final List<GeneratorController> controllers;
+        final Map<BiomeSource, List<GeneratorController>> carvers = new ConcurrentHashMap<>();
+        final Map<ResourceKey<Level>, List<GeneratorController>> features = new ConcurrentHashMap<>();
+        final Map<BitSet, List<GeneratorController>> matches = new ConcurrentHashMap<>();
+
+        /** Every distinct dimension condition in the snapshot, by index. */
+        final List<DimensionPredicate> dimensions = new ArrayList<>();
+        final Map<DimensionPredicate, Integer> indices = new IdentityHashMap<>();
+
+        Snapshot(final List<GeneratorController> controllers) {
+            this.controllers = controllers;
+            for (final GeneratorController controller : controllers) {
+                controller.forEachCondition(c -> {
+                    if (!this.indices.containsKey(c.dimensions)) {
+                        this.indices.put(c.dimensions, this.dimensions.size());
+                        this.dimensions.add(c.dimensions);
+                    }
+                });
+            }
+        }
+
+        List<GeneratorController> filter(final Predicate<ConditionConfig> test) {
+            final List<GeneratorController> filtered = new ArrayList<>();
+            for (final GeneratorController controller : this.controllers) {
+                final GeneratorController view = controller.filter(test);
+                if (view != null) {
+                    filtered.add(view);
+                }
+            }
+            return filtered;
+        }
+    }
+}
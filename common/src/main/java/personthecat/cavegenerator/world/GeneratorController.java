@@ -1,10 +1,13 @@
 package personthecat.cavegenerator.world;
 
 import lombok.Builder;
+import org.jetbrains.annotations.Nullable;
 import personthecat.cavegenerator.world.config.BurrowConfig;
 import personthecat.cavegenerator.world.config.CavernConfig;
 import personthecat.cavegenerator.world.config.ClusterConfig;
+import personthecat.cavegenerator.world.config.ConditionConfig;
 import personthecat.cavegenerator.world.config.LayerConfig;
+import personthecat.cavegenerator.world.feature.BasicFeature;
 import personthecat.cavegenerator.world.feature.PillarGenerator;
 import personthecat.cavegenerator.world.feature.StalactiteGenerator;
 import personthecat.cavegenerator.world.feature.StructureGenerator;
@@ -14,6 +17,9 @@ import personthecat.cavegenerator.world.generator.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 @Builder
 public class GeneratorController {
@@ -46,12 +52,93 @@ public class GeneratorController {
         burrowTunnels.forEach(t -> t.generate(ctx));
     }
 
+    /**
+     * Assigns the keys used to store the planned regions of every map generator in this
+     * controller. Each generator is identified by its type and position in the preset.
+     *
+     * @param key The key generated for this controller's preset.
+     */
+    public void setRegionKeys(final String key) {
+        setRegionKeys(this.tunnels, key, "tunnel");
+        setRegionKeys(this.ravines, key, "ravine");
+        setRegionKeys(this.cavernTunnels, key, "cavern");
+        setRegionKeys(this.burrowTunnels, key, "burrow");
+    }
+
+    private static void setRegionKeys(final List<? extends MapGenerator> generators, final String key, final String type) {
+        for (int i = 0; i < generators.size(); i++) {
+            generators.get(i).setRegionKey(key + "/" + type + i);
+        }
+    }
+
     public void featureGenerate(final WorldContext ctx) {
         stalactites.forEach(s -> s.generate(ctx));
         pillars.forEach(p -> p.generate(ctx));
         structures.forEach(s -> s.generate(ctx));
     }
 
+    /**
+     * Creates a view of this controller containing only the generators whose conditions
+     * pass the given test. Clusters are always retained, as they test each of their
+     * features separately.
+     *
+     * @param test A test for the conditions of each generator, e.g. a dimension check.
+     * @return The filtered controller, or else <code>null</code> if nothing can spawn.
+     */
+    public @Nullable GeneratorController filter(final Predicate<ConditionConfig> test) {
+        final GeneratorController filtered = builder()
+            .tunnels(filter(this.tunnels, EarlyGenerator::getConditions, test))
+            .ravines(filter(this.ravines, EarlyGenerator::getConditions, test))
+            .caverns(filter(this.caverns, EarlyGenerator::getConditions, test))
+            .burrows(filter(this.burrows, EarlyGenerator::getConditions, test))
+            .layers(filter(this.layers, EarlyGenerator::getConditions, test))
+            .cavernTunnels(filter(this.cavernTunnels, EarlyGenerator::getConditions, test))
+            .burrowTunnels(filter(this.burrowTunnels, EarlyGenerator::getConditions, test))
+            .globalClusters(this.globalClusters)
+            .layeredClusters(this.layeredClusters)
+            .stalactites(filter(this.stalactites, BasicFeature::getConditions, test))
+            .pillars(filter(this.pillars, BasicFeature::getConditions, test))
+            .structures(filter(this.structures, BasicFeature::getConditions, test))
+            .build();
+        return filtered.isEmpty() ? null : filtered;
+    }
+
+    private static <T> List<T> filter(final List<T> generators, final Function<T, ConditionConfig> getter, final Predicate<ConditionConfig> test) {
+        final List<T> filtered = new ArrayList<>();
+        for (final T generator : generators) {
+            if (test.test(getter.apply(generator))) {
+                filtered.add(generator);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Runs an action on the conditions of every generator in this controller which can
+     * be filtered by {@link #filter}.
+     *
+     * @param action The action to run on each generator's conditions.
+     */
+    public void forEachCondition(final Consumer<ConditionConfig> action) {
+        this.tunnels.forEach(g -> action.accept(g.getConditions()));
+        this.ravines.forEach(g -> action.accept(g.getConditions()));
+        this.caverns.forEach(g -> action.accept(g.getConditions()));
+        this.burrows.forEach(g -> action.accept(g.getConditions()));
+        this.layers.forEach(g -> action.accept(g.getConditions()));
+        this.cavernTunnels.forEach(g -> action.accept(g.getConditions()));
+        this.burrowTunnels.forEach(g -> action.accept(g.getConditions()));
+        this.stalactites.forEach(g -> action.accept(g.getConditions()));
+        this.pillars.forEach(g -> action.accept(g.getConditions()));
+        this.structures.forEach(g -> action.accept(g.getConditions()));
+    }
+
+    public boolean isEmpty() {
+        return tunnels.isEmpty() && ravines.isEmpty() && caverns.isEmpty() && burrows.isEmpty()
+            && layers.isEmpty() && cavernTunnels.isEmpty() && burrowTunnels.isEmpty()
+            && globalClusters.isEmpty() && layeredClusters.isEmpty()
+            && stalactites.isEmpty() && pillars.isEmpty() && structures.isEmpty();
+    }
+
     public static class GeneratorControllerBuilder {
         public GeneratorControllerBuilder sortClusters(final List<ClusterConfig> clusters, final Random rand, final long seed) {
             final List<ClusterConfig> global = new ArrayList<>();
@@ -0,0 +1,98 @@
+package personthecat.cavegenerator.world.config;
+
+import personthecat.catlib.data.Range;
+
+import java.util.Arrays;
+
+/**
+ * A cache of the height range in every column of the chunks most recently read from a
+ * single {@link ConditionConfig}. The floor and ceiling noise for each column is only
+ * ever evaluated once while its chunk remains in the cache.
+ *
+ * <p>
+ *  Each chunk is mapped into one of four slots by its coordinates, which means that
+ *  features crossing into any neighboring chunk do not evict the chunk being generated.
+ *  This cache is not thread-safe and must be confined to a single thread.
+ * </p>
+ */
+class ColumnBounds {
+
+    private final Slot[] slots = { new Slot(), new Slot(), new Slot(), new Slot() };
+
+    /**
+     * Gets the height range in a single column, ignoring the surface.
+     *
+     * @param cfg The conditions which own this cache.
+     * @param x   The absolute x-coordinate of the column.
+     * @param z   The absolute z-coordinate of the column.
+     * @return The height range in this column.
+     */
+    Range get(final ConditionConfig cfg, final int x, final int z) {
+        final Slot slot = this.getSlot(x, z);
+        final int i = (x & 15) << 4 | (z & 15);
+        if (slot.stamps[i] != slot.stamp) {
+            slot.fill(cfg, i, x, z);
+        }
+        return slot.columns[i];
+    }
+
+    /**
+     * Gets the height range in a single column, below the given surface.
+     *
+     * @param cfg     The conditions which own this cache.
+     * @param x       The absolute x-coordinate of the column.
+     * @param z       The absolute z-coordinate of the column.
+     * @param surface The height of the surface in this column.
+     * @return The height range in this column.
+     */
+    Range get(final ConditionConfig cfg, final int x, final int z, final int surface) {
+        final Slot slot = this.getSlot(x, z);
+        final int i = (x & 15) << 4 | (z & 15);
+        if (slot.stamps[i] != slot.stamp) {
+            slot.fill(cfg, i, x, z);
+        }
+        if (surface >= cfg.height.max) {
+            return slot.columns[i];
+        }
+        return Range.checkedOrEmpty(slot.floors[i], surface + slot.ceilings[i]);
+    }
+
+    private Slot getSlot(final int x, final int z) {
+        final int cX = x >> 4;
+        final int cZ = z >> 4;
+        final Slot slot = this.slots[(cX & 1) | (cZ & 1) << 1];
+        if (slot.chunkX != cX || slot.chunkZ != cZ) {
+            slot.moveTo(cX, cZ);
+        }
+        return slot;
+    }
+
+    /** Columns are only computed when requested, as some callers only read a single column. */
+    private static class Slot {
+        final Range[] columns = new Range[256];
+        final int[] floors = new int[256];
+        final int[] ceilings = new int[256];
+        final int[] stamps = new int[256];
+        int stamp = 1;
+        int chunkX = Integer.MAX_VALUE;
+        int chunkZ = Integer.MAX_VALUE;
+
+        void moveTo(final int chunkX, final int chunkZ) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            if (++this.stamp == 0) {
+                Arrays.fill(this.stamps, 0);
+                this.stamp = 1;
+            }
+        }
+
+        void fill(final ConditionConfig cfg, final int i, final int x, final int z) {
+            final int min = cfg.height.min + (int) cfg.floor.getNoiseScaled((float) x, (float) z);
+            final int ceiling = (int) cfg.ceiling.getNoiseScaled((float) x, (float) z);
+            this.floors[i] = min;
+            this.ceilings[i] = ceiling;
+            this.columns[i] = Range.checkedOrEmpty(min, cfg.height.max + ceiling);
+            this.stamps[i] = this.stamp;
+        }
+    }
+}
@@ -19,16 +19,14 @@ public class ConditionConfig {
     public final boolean hasBiomes;
     public final boolean hasRegion;
 
+    /** The height range in each column of the most recent chunks, per generation thread. */
+    private final ThreadLocal<ColumnBounds> columns = ThreadLocal.withInitial(ColumnBounds::new);
+
     public Range getColumn(final int x, final int z) {
-        final int min = this.height.min + (int) this.floor.getNoiseScaled((float) x, (float) z);
-        final int max = this.height.max + (int) this.ceiling.getNoiseScaled((float) x, (float) z);
-        return Range.checkedOrEmpty(min, max);
+        return this.columns.get().get(this, x, z);
     }
 
     public Range getColumn(final PrimerContext ctx, final int x, final int z) {
-        final int surface = ctx.getHeight(x, z);
-        final int min = this.height.min + (int) this.floor.getNoiseScaled((float) x, (float) z);
-        final int max = Math.min(this.height.max, surface) + (int) this.ceiling.getNoiseScaled((float) x, (float) z);
-        return Range.checkedOrEmpty(min, max);
+        return this.columns.get().get(this, x, z, ctx.getHeight(x, z));
     }
 }
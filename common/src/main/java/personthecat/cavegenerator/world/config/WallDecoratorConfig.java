@@ -23,14 +23,20 @@ public class WallDecoratorConfig {
     public final FastNoise noise;
 
     public boolean canGenerate(Random rand, BlockState state, int x, int y, int z, int cX, int cZ) {
-        return canGenerate(rand, x, y, z, cX, cZ) && matchesBlock(state);
+        return containsHeight(y) // Height bounds
+            && matchesBlock(state) // Block
+            && testNoise(x, y, z, cX, cZ); // Noise
     }
 
     public boolean canGenerate(final Random rand, final int x, final int y, int z, final int cX, final int cZ) {
-        return y >= this.height.min && y <= this.height.max// Height bounds
+        return containsHeight(y) // Height bounds
             && testNoise(x, y, z, cX, cZ); // Noise
     }
 
+    public boolean containsHeight(final int y) {
+        return y >= this.height.min && y <= this.height.max;
+    }
+
     private boolean testNoise(int x, int y, int z, int chunkX, int chunkZ) {
         int actualX = (chunkX * 16) + x;
         int actualZ = (chunkZ * 16) + z;
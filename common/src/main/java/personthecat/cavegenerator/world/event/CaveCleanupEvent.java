@@ -7,6 +7,7 @@ import personthecat.catlib.event.world.FeatureModificationContext;
 import personthecat.cavegenerator.CaveRegistries;
 import personthecat.cavegenerator.config.Cfg;
 import personthecat.cavegenerator.world.hook.FallbackFeatureHook;
+import personthecat.cavegenerator.world.hook.FallbackCarverFeature;
 import personthecat.cavegenerator.world.hook.FallbackCarverHook;
 
 @Log4j2
@@ -23,7 +24,11 @@ public class CaveCleanupEvent {
             if (ctx.removeStructure(id)) log.debug("Removed structure {} from {}.", id, ctx.getName());
         });
         if (Cfg.fallbackCarvers()) {
-            ctx.addCarver(GenerationStep.Carving.AIR, FallbackCarverHook.HOOK);
+            if (Cfg.fallbackCarverFeature()) {
+                ctx.addFeature(GenerationStep.Decoration.RAW_GENERATION, FallbackCarverFeature.HOOK);
+            } else {
+                ctx.addCarver(GenerationStep.Carving.AIR, FallbackCarverHook.HOOK);
+            }
         }
         if (Cfg.fallbackFeatures()) {
             ctx.addFeature(GenerationStep.Decoration.SURFACE_STRUCTURES, FallbackFeatureHook.HOOK);
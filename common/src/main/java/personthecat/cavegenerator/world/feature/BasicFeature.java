@@ -1,18 +1,18 @@
 package personthecat.cavegenerator.world.feature;
 
 import net.minecraft.core.BlockPos;
-import net.minecraft.core.BlockPos.MutableBlockPos;
-import net.minecraft.server.level.WorldGenRegion;
-import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.state.BlockState;
 import personthecat.catlib.util.Shorthand;
 import personthecat.cavegenerator.model.BlockCheck;
+import personthecat.cavegenerator.world.DimensionIndex;
 import personthecat.cavegenerator.world.config.ConditionConfig;
 
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
+import static personthecat.cavegenerator.util.CommonBlocks.BLK_WATER;
+
 public abstract class BasicFeature {
 
     /** The number of times to try locating vertical surfaces for structures. */
@@ -22,7 +22,7 @@ public abstract class BasicFeature {
     protected static final int HORIZONTAL_RETRIES = 20;
 
     /** The value returned by any surface locator when no surface is found. */
-    protected static final int NONE_FOUND = Integer.MIN_VALUE;
+    protected static final int NONE_FOUND = WorldContext.NONE_FOUND;
 
     /** Minimum distance below the surface for all late features. */
     protected static final int SURFACE_ROOM = 5;
@@ -38,18 +38,17 @@ public abstract class BasicFeature {
     }
 
     /**
-     * Generates this feature <em>after</em> checking to ensure that it can spawn in the
-     * current dimension.
-     *
-     * Todo: This is completely unnecessary. Generators should be mapped to dimensions,
-     *   thus leaving no reason to check whether they can spawn here.
+     * Generates this feature. Generators are mapped to dimensions ahead of time by the
+     * {@link DimensionIndex}, leaving no reason to check whether they can spawn here.
      *
      * @param ctx A context containing world information and coordinates.
      */
     public final void generate(final WorldContext ctx) {
-        if (this.conditions.dimensions.test(ctx.level)) {
-            this.doGenerate(ctx);
-        }
+        this.doGenerate(ctx);
+    }
+
+    public ConditionConfig getConditions() {
+        return this.conditions;
     }
 
     /**
@@ -60,84 +59,55 @@ public abstract class BasicFeature {
      */
     protected abstract void doGenerate(final WorldContext ctx);
 
-    /**
-     * Determines whether the block at the input coordinates is a solid cube.
-     *
-     * @param region The current world being operated on.
-     * @param x     The x-coordinate of the block in question.
-     * @param y     The y-coordinate of the block in question.
-     * @param z     The z-coordinate of the block in question.
-     */
-    protected final boolean isSolid(final WorldGenRegion region, final int x, final int y, final int z) {
-        return isSolid(region, new BlockPos(x, y, z));
-    }
-
-    /**
-     * Determines whether the block at the input coordinates is a solid cube.
-     *
-     * @param region The current world being operated on.
-     * @param pos   The coordinates of the block in question.
-     * @return <code>true</code> If the block at this position is solid.
-     */
-    protected final boolean isSolid(final WorldGenRegion region, final BlockPos pos) {
-        return region.getBlockState(pos).getMaterial().isSolidBlocking();
-    }
-
     /**
      * Locates the first cave surface from above within the specified range.
      *
-     * @param region The current world being operated on.
+     * @param ctx   The current world being operated on.
      * @param x     The x-coordinate of the starting position.
      * @param y     The y-coordinate of the starting position.
      * @param z     The z-coordinate of the starting position.
      * @param minY  The minimum y-bound, exclusive.
      * @return The position of the floor, or else <code>NONE_FOUND</code>.
      */
-    protected final int findFloor(final WorldGenRegion region, final int x, final int y, final int z, final int minY) {
-        final MutableBlockPos pos = new MutableBlockPos(x, y, z);
+    protected final int findFloor(final WorldContext ctx, final int x, final int y, final int z, final int minY) {
+        if (y <= minY) {
+            return NONE_FOUND;
+        }
         // Skip until not solid
-        while (pos.getY() > minY && isSolid(region, pos)) {
-            pos.setY(pos.getY() - 1);
+        final int opening = ctx.scanDown(x, z, y, minY + 1, false);
+        if (opening == NONE_FOUND) {
+            return NONE_FOUND;
         }
         // Get first solid
-        while (pos.getY() > minY) {
-            pos.setY(pos.getY() - 1);
-            if (isSolid(region, pos)) {
-                return pos.getY();
-            }
-        }
-        return NONE_FOUND;
+        return ctx.scanDown(x, z, opening - 1, minY, true);
     }
 
     /**
      * Locates the first cave surface from below within the specified range.
      *
-     * @param region The current world being operated on.
+     * @param ctx   The current world being operated on.
      * @param x     The x-coordinate of the starting position.
      * @param y     The y-coordinate of the starting position.
      * @param z     The z-coordinate of the starting position.
      * @param maxY  The maximum y-bound, exclusive.
      * @return The position of the ceiling, or else <code>NONE_FOUND</code>.
      */
-    protected final int findCeiling(final WorldGenRegion region, final int x, final int y, final int z, final int maxY) {
-        final MutableBlockPos pos = new MutableBlockPos(x, y, z);
-        while (pos.getY() < maxY && isSolid(region, pos)) {
-            pos.setY(pos.getY() + 1);
+    protected final int findCeiling(final WorldContext ctx, final int x, final int y, final int z, final int maxY) {
+        if (y >= maxY) {
+            return NONE_FOUND;
         }
-        while (pos.getY() < maxY) {
-            pos.setY(pos.getY() + 1);
-            if (isSolid(region, pos)) {
-                return pos.getY();
-            }
+        final int opening = ctx.scanUp(x, z, y, maxY - 1, false);
+        if (opening == NONE_FOUND) {
+            return NONE_FOUND;
         }
-        return NONE_FOUND;
+        return ctx.scanUp(x, z, opening + 1, maxY, true);
     }
 
     /**
      * Randomly locates a cave surface from above within the specified range. Starts at
      * a random coordinate, then starts from the top, if nothing is found.
      *
-     * @param region The current world being operated on.
+     * @param ctx   The current world being operated on.
      * @param rand  The ongoing RNG in use by the current generator.
      * @param x     The x-coordinate of the starting position.
      * @param z     The z-coordinate of the starting position.
@@ -145,21 +115,21 @@ public abstract class BasicFeature {
      * @param maxY  The maximum y-bound, exclusive.
      * @return The position of the floor, or else <code>NONE_FOUND</code>.
      */
-    protected final int randFindFloor(final WorldGenRegion region, final Random rand, final int x, final int z, final int minY, final int maxY) {
+    protected final int randFindFloor(final WorldContext ctx, final Random rand, final int x, final int z, final int minY, final int maxY) {
         // Start at a random coordinate. Then try from the top, if nothing is found.
         final int startY = Shorthand.numBetween(rand, minY, maxY);
-        final int y = findFloor(region, x, startY, z, minY);
+        final int y = findFloor(ctx, x, startY, z, minY);
         if (y != NONE_FOUND) {
             return y;
         }
-        return findFloor(region, x, maxY, z, startY);
+        return findFloor(ctx, x, maxY, z, startY);
     }
 
     /**
      * Randomly locates a cave surface from below within the specified range. Starts at
      * a random coordinate, then starts from the top, if nothing is found.
      *
-     * @param region The current world being operated on.
+     * @param ctx   The current world being operated on.
      * @param rand  The ongoing RNG in use by the current generator.
      * @param x     The x-coordinate of the starting position.
      * @param z     The z-coordinate of the starting position.
@@ -167,12 +137,12 @@ public abstract class BasicFeature {
      * @param maxY  The maximum y-bound, exclusive.
      * @return The position of the ceiling, or else <code>NONE_FOUND</code>.
      */
-    protected final int randFindCeiling(final WorldGenRegion region, final Random rand, final int x, final int z, final int minY, final int maxY) {
+    protected final int randFindCeiling(final WorldContext ctx, final Random rand, final int x, final int z, final int minY, final int maxY) {
         // Start at a random coordinate. Then try from the top, if nothing is found.
         final int startY = Shorthand.numBetween(rand, minY, maxY);
-        int y = findCeiling(region, x, startY, z, maxY);
+        int y = findCeiling(ctx, x, startY, z, maxY);
         if (y == NONE_FOUND) {
-            y = findCeiling(region, x, minY, z, startY);
+            y = findCeiling(ctx, x, minY, z, startY);
         }
         return y;
     }
@@ -180,7 +150,7 @@ public abstract class BasicFeature {
     /**
      * Locates the first cave opening from a random coordinate, randomly searching up or down.
      *
-     * @param region The current world being operated on.
+     * @param ctx   The current world being operated on.
      * @param rand  The ongoing RNG in use by the current generator.
      * @param x     The x-coordinate of the starting position.
      * @param z     The z-coordinate of the starting position.
@@ -188,92 +158,70 @@ public abstract class BasicFeature {
      * @param maxY  The maximum y-bound, exclusive.
      * @return The position of the surface, or else <code>NONE_FOUND</code>.
      */
-    protected final int findOpeningVertical(final Random rand, final WorldGenRegion region, final int x, final int z, final int minY, final int maxY) {
+    protected final int findOpeningVertical(final Random rand, final WorldContext ctx, final int x, final int z, final int minY, final int maxY) {
         final int startY = Shorthand.numBetween(rand, minY, maxY);
         if (rand.nextBoolean()) {
             // First search from the center up.
-            final int fromCenter = findOpeningFromBelow(region, x, startY, z, maxY);
+            final int fromCenter = findOpeningFromBelow(ctx, x, startY, z, maxY);
             if (fromCenter != NONE_FOUND) {
                 return fromCenter;
             }
             // Then try from the bottom to the center.
-            return findOpeningFromBelow(region, x, minY, z, startY);
+            return findOpeningFromBelow(ctx, x, minY, z, startY);
         } else {
-            final int fromCenter = findOpeningFromAbove(region, x, startY, z, minY);
+            final int fromCenter = findOpeningFromAbove(ctx, x, startY, z, minY);
             if (fromCenter != NONE_FOUND) {
                 return fromCenter;
             }
-            return findOpeningFromAbove(region, x, maxY, z, startY);
+            return findOpeningFromAbove(ctx, x, maxY, z, startY);
         }
     }
 
     /**
      * Locates the first cave opening <b>or surface</b> from below within the specified range.
      *
-     * @param region The current world being operated on.
+     * @param ctx   The current world being operated on.
      * @param x     The x-coordinate of the starting position.
      * @param y     The y-coordinate of the starting position.
      * @param z     The z-coordinate of the starting position.
      * @param maxY  The maximum y-bound, exclusive.
      * @return The position of the ceiling, or else <code>NONE_FOUND</code>.
      */
-    protected final int findOpeningFromBelow(final WorldGenRegion region, final int x, final int y, final int z, final int maxY) {
-        final MutableBlockPos pos = new MutableBlockPos(x, y, z);
-        final boolean solid = isSolid(region, pos);
-        pos.setY(y + 1);
-
-        while (pos.getY() < maxY) {
-            if ((solid != isSolid(region, pos))) {
-                return pos.getY();
-            }
-            pos.setY(pos.getY() + 1);
-        }
-        return NONE_FOUND;
+    protected final int findOpeningFromBelow(final WorldContext ctx, final int x, final int y, final int z, final int maxY) {
+        final boolean solid = ctx.isSolid(x, y, z);
+        return ctx.scanUp(x, z, y + 1, maxY - 1, !solid);
     }
 
     /**
      * Locates the first cave opening <b>or surface</b> from above within the specified range.
      *
-     * @param region The current world being operated on.
+     * @param ctx   The current world being operated on.
      * @param x     The x-coordinate of the starting position.
      * @param y     The y-coordinate of the starting position.
      * @param z     The z-coordinate of the starting position.
      * @param minY  The minimum y-bound, exclusive.
      * @return The position of the ceiling, or else <code>NONE_FOUND</code>.
      */
-    protected final int findOpeningFromAbove(final WorldGenRegion region, final int x, final int y, final int z, final int minY) {
-        final MutableBlockPos pos = new MutableBlockPos(x, y, z);
-        final boolean solid = isSolid(region, pos);
-        pos.setY(y - 1);
-
-        while (pos.getY() > minY) {
-            if ((solid != isSolid(region, pos))) {
-                return pos.getY();
-            }
-            pos.setY(pos.getY() - 1);
-        }
-        return NONE_FOUND;
+    protected final int findOpeningFromAbove(final WorldContext ctx, final int x, final int y, final int z, final int minY) {
+        final boolean solid = ctx.isSolid(x, y, z);
+        return ctx.scanDown(x, z, y - 1, minY + 1, !solid);
     }
 
     /**
      * Locates the first cave opening <b>or surface</b> from south within the specified range.
      *
-     * @param region   The current world being operated on.
+     * @param ctx     The current world being operated on.
      * @param x       The x-coordinate of the starting position.
      * @param y       The y-coordinate of the starting position.
      * @param offsetZ The z-coordinate, starting from an offset of 8.
      * @return The position of the opening, or else <code>NONE_FOUND</code>.
      */
-    protected final int findOpeningNorth(final WorldGenRegion region, final int x, final int y, final int offsetZ) {
-        final MutableBlockPos pos = new MutableBlockPos(x, y, offsetZ + 15);
-        final boolean solid = isSolid(region, pos);
-        pos.setZ(offsetZ + 14);
-
-        while (pos.getZ() >= offsetZ) {
-            if (solid != isSolid(region, pos)) {
-                return pos.getZ();
+    protected final int findOpeningNorth(final WorldContext ctx, final int x, final int y, final int offsetZ) {
+        final boolean solid = ctx.isSolid(x, y, offsetZ + 15);
+        for (int z = offsetZ + 14; z >= offsetZ; z--) {
+            if (solid != ctx.isSolid(x, y, z)) {
+                return z;
             }
-            pos.setZ(pos.getZ() - 1);
         }
         return NONE_FOUND;
     }
@@ -281,22 +229,18 @@ public abstract class BasicFeature {
     /**
      * Locates the first cave opening <b>or surface</b> from north within the specified range.
      *
-     * @param region   The current world being operated on.
+     * @param ctx     The current world being operated on.
      * @param x       The x-coordinate of the starting position.
      * @param y       The y-coordinate of the starting position.
      * @param offsetZ The z-coordinate, starting from an offset of 8.
      * @return The position of the opening, or else <code>NONE_FOUND</code>.
      */
-    protected final int findOpeningSouth(final WorldGenRegion region, final int x, final int y, final int offsetZ) {
-        final MutableBlockPos pos = new MutableBlockPos(x, y, offsetZ);
-        final boolean solid = isSolid(region, pos);
-        pos.setZ(offsetZ + 1);
-
-        while (pos.getZ() < offsetZ + 16) {
-            if (solid != isSolid(region, pos)) {
-                return pos.getZ();
+    protected final int findOpeningSouth(final WorldContext ctx, final int x, final int y, final int offsetZ) {
+        final boolean solid = ctx.isSolid(x, y, offsetZ);
+        for (int z = offsetZ + 1; z < offsetZ + 16; z++) {
+            if (solid != ctx.isSolid(x, y, z)) {
+                return z;
             }
-            pos.setZ(pos.getZ() + 1);
         }
         return NONE_FOUND;
     }
@@ -304,22 +248,18 @@ public abstract class BasicFeature {
     /**
      * Locates the first cave opening <b>or surface</b> from west within the specified range.
      *
-     * @param region   The current world being operated on.
+     * @param ctx     The current world being operated on.
      * @param offsetX The x-coordinate, starting from an offset of 8.
      * @param y       The y-coordinate of the starting position.
      * @param z       The z-coordinate of the starting position.
      * @return The position of the opening, or else <code>NONE_FOUND</code>.
      */
-    protected final int findOpeningEast(final WorldGenRegion region, final int y, final int z, final int offsetX) {
-        final MutableBlockPos pos = new MutableBlockPos(offsetX, y, z);
-        final boolean solid = isSolid(region, pos);
-        pos.setX(offsetX + 1);
-
-        while (pos.getX() < offsetX + 16) {
-            if (solid != isSolid(region, pos)) {
-                return pos.getX();
+    protected final int findOpeningEast(final WorldContext ctx, final int y, final int z, final int offsetX) {
+        final boolean solid = ctx.isSolid(offsetX, y, z);
+        for (int x = offsetX + 1; x < offsetX + 16; x++) {
+            if (solid != ctx.isSolid(x, y, z)) {
+                return x;
             }
-            pos.setX(pos.getX() + 1);
         }
         return NONE_FOUND;
     }
@@ -327,22 +267,18 @@ public abstract class BasicFeature {
     /**
      * Locates the first cave opening <b>or surface</b> from east within the specified range.
      *
-     * @param region   The current world being operated on.
+     * @param ctx     The current world being operated on.
      * @param offsetX The x-coordinate, starting from an offset of 8.
      * @param y       The y-coordinate of the starting position.
      * @param z       The z-coordinate of the starting position.
      * @return The position of the opening, or else <code>NONE_FOUND</code>.
      */
-    protected final int findOpeningWest(final WorldGenRegion region, final int y, final int z, final int offsetX) {
-        final MutableBlockPos pos = new MutableBlockPos(offsetX + 15, y, z);
-        final boolean solid = isSolid(region, pos);
-        pos.setX(offsetX + 14);
-
-        while (pos.getX() >= offsetX) {
-            if (solid != isSolid(region, pos)) {
-                return pos.getX();
+    protected final int findOpeningWest(final WorldContext ctx, final int y, final int z, final int offsetX) {
+        final boolean solid = ctx.isSolid(offsetX + 15, y, z);
+        for (int x = offsetX + 14; x >= offsetX; x--) {
+            if (solid != ctx.isSolid(x, y, z)) {
+                return x;
             }
-            pos.setX(pos.getX() - 1);
         }
         return NONE_FOUND;
     }
@@ -352,29 +288,29 @@ public abstract class BasicFeature {
      * array of matcher blocks.
      *
      * @param matchers A list of valid block states.
-     * @param region    The current world being operated on.
+     * @param ctx      The current world being operated on.
      * @param pos      The position of the block in question.
      * @return Whether Whether the array contains the block at the given coordinates.
      */
-    protected final boolean checkSources(final Set<BlockState> matchers, final WorldGenRegion region, final BlockPos pos) {
+    protected final boolean checkSources(final Set<BlockState> matchers, final WorldContext ctx, final BlockPos pos) {
         // No matchers -> always spawn.
         if (matchers.isEmpty()) {
             return true;
         }
-        return matchers.contains(region.getBlockState(pos));
+        return matchers.contains(ctx.get(pos.getX(), pos.getY(), pos.getZ()));
     }
 
     /**
      * Determines whether non-solid blocks exist at <b>all</b> of the relative coordinates.
      *
      * @param relative A list of relative block coordinates.
-     * @param region    The current world being operated on.
+     * @param ctx      The current world being operated on.
      * @param origin   The position of the block in question.
      * @return Whether Whether <b>all</b> of the blocks are non-solid.
      */
-    protected final boolean checkNonSolid(final List<BlockPos> relative, final WorldGenRegion region, final BlockPos origin) {
+    protected final boolean checkNonSolid(final List<BlockPos> relative, final WorldContext ctx, final BlockPos origin) {
         for (final BlockPos p : relative) {
-            if (isSolid(region, origin.offset(p.getX(), p.getY(), p.getZ()))) {
+            if (ctx.isSolid(origin.getX() + p.getX(), origin.getY() + p.getY(), origin.getZ() + p.getZ())) {
                 return false;
             }
         }
@@ -385,13 +321,13 @@ public abstract class BasicFeature {
      * Determines whether solid blocks exist at <b>all</b> of the relative coordinates.
      *
      * @param relative A list of relative block coordinates.
-     * @param region    The current world being operated on.
+     * @param ctx      The current world being operated on.
      * @param origin   The position of the block in question.
      * @return Whether <b>all</b> of the blocks are solid.
      */
-    protected final boolean checkSolid(final List<BlockPos> relative, final WorldGenRegion region, final BlockPos origin) {
+    protected final boolean checkSolid(final List<BlockPos> relative, final WorldContext ctx, final BlockPos origin) {
         for (final BlockPos p : relative) {
-            if (!isSolid(region, origin.offset(p.getX(), p.getY(), p.getZ()))) {
+            if (!ctx.isSolid(origin.getX() + p.getX(), origin.getY() + p.getY(), origin.getZ() + p.getZ())) {
                 return false;
             }
         }
@@ -402,13 +338,13 @@ public abstract class BasicFeature {
      * Determines whether air blocks exist at each of the relative coordinates.
      *
      * @param relative A list of relative coordinates.
-     * @param region    The current world being operated on.
+     * @param ctx      The current world being operated on.
      * @param origin   The position of the block in question.
      * @return Whether <b>all</b> of the blocks are air blocks.
      */
-    protected final boolean checkAir(final List<BlockPos> relative, final WorldGenRegion region, final BlockPos origin) {
+    protected final boolean checkAir(final List<BlockPos> relative, final WorldContext ctx, final BlockPos origin) {
         for (final BlockPos p : relative) {
-            if (!region.getBlockState(origin.offset(p.getX(), p.getY(), p.getZ())).isAir()) {
+            if (!ctx.get(origin.getX() + p.getX(), origin.getY() + p.getY(), origin.getZ() + p.getZ()).isAir()) {
                 return false;
             }
         }
@@ -421,13 +357,13 @@ public abstract class BasicFeature {
      * Todo: Consider replacing this with "check fluid."
      *
      * @param relative A list of relative coordinates.
-     * @param region    The current world being operated on.
+     * @param ctx      The current world being operated on.
      * @param origin   The position of the block in question.
      * @return Whether <b>all</b> of the blocks are water blocks.
      */
-    protected final boolean checkWater(final List<BlockPos> relative, final WorldGenRegion region, final BlockPos origin) {
+    protected final boolean checkWater(final List<BlockPos> relative, final WorldContext ctx, final BlockPos origin) {
         for (final BlockPos p : relative) {
-            if (!region.getBlockState(origin.offset(p.getX(), p.getY(), p.getZ())).equals(Blocks.WATER.defaultBlockState())) {
+            if (!ctx.get(origin.getX() + p.getX(), origin.getY() + p.getY(), origin.getZ() + p.getZ()).equals(BLK_WATER)) {
                 return false;
             }
         }
@@ -439,14 +375,14 @@ public abstract class BasicFeature {
      * the given relative coordinates.
      *
      * @param checks A list expected blocks and their respective relative coordinates.
-     * @param region  The current world being operated on.
+     * @param ctx    The current world being operated on.
      * @param origin The position of the block in question.
      * @return Whether <b>all</b> of the blocks are water blocks.
      */
-    protected final boolean checkBlocks(final List<BlockCheck> checks, final WorldGenRegion region, final BlockPos origin) {
+    protected final boolean checkBlocks(final List<BlockCheck> checks, final WorldContext ctx, final BlockPos origin) {
         for (final BlockCheck c : checks) {
             for (final BlockPos p : c.positions) {
-                final BlockState state = region.getBlockState(origin.offset(p.getX(), p.getY(), p.getZ()));
+                final BlockState state = ctx.get(origin.getX() + p.getX(), origin.getY() + p.getY(), origin.getZ() + p.getZ());
                 if (!c.matchers.contains(state)) {
                     return false;
                 }
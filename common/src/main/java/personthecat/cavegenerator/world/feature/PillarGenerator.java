@@ -37,7 +37,7 @@ public class PillarGenerator extends BasicFeature {
 
                 if (!height.isEmpty() && conditions.region.getBoolean(x, z)) {
                     final int y = height.rand(rand);
-                    final int opening = findCeiling(ctx.region, x, y, z, height.max);
+                    final int opening = findCeiling(ctx, x, y, z, height.max);
                     if (opening != NONE_FOUND && conditions.noise.getBoolean(x, opening, z)) {
                         this.generateSingle(ctx, rand, new BlockPos(x, opening, z));
                     }
@@ -74,12 +74,14 @@ public class PillarGenerator extends BasicFeature {
     }
 
     /** Determines the lowest block at the given X, Z coordinates. */
-    private int getLowestBlock(final WorldContext ctx, BlockPos pos) {
-        for (pos = pos.below(); pos.getY() > cfg.conditions.height.min; pos = pos.below()) {
-            if (ctx.region.getBlockState(pos).getMaterial().isSolid()) {
+    private int getLowestBlock(final WorldContext ctx, final BlockPos pos) {
+        final int x = pos.getX();
+        final int z = pos.getZ();
+        for (int y = pos.getY() - 1; y > cfg.conditions.height.min; y--) {
+            if (ctx.get(x, y, z).getMaterial().isSolid()) {
                 // We're going down. There was air above us, but not at this position.
                 // This is the bottom.
-                return pos.getY();
+                return y;
             }
         }
         // Nothing was found. Just return -1 instead of boxing it in some container.
@@ -14,6 +14,15 @@ import java.util.Random;
 @ParametersAreNonnullByDefault
 public class StalactiteGenerator extends BasicFeature {
 
+    /** The horizontal offsets of each ring of blocks surrounding the center, as {x, z}. */
+    private static final int[][] SIDES = {{0, -1}, {0, 1}, {1, 0}, {-1, 0}};
+    private static final int[][] CORNERS = {{1, -1}, {1, 1}, {-1, 1}, {-1, -1}};
+    private static final int[][] MIDDLE_SIDES = {{0, -2}, {0, 2}, {2, 0}, {-2, 0}};
+    private static final int[][] MIDDLE_CORNERS = {{2, 1}, {2, -1}, {-2, 1}, {-2, -1}, {1, 2}, {-1, 2}, {1, -2}, {-1, -2}};
+    private static final int[][] OUTER_SIDES = {{0, -3}, {0, 3}, {3, 0}, {-3, 0}};
+    private static final int[][] OUTER_BETWEEN = {{2, -2}, {2, 2}, {-2, 2}, {-2, -2}};
+    private static final int[][] OUTER_CORNERS = {{1, 3}, {3, 1}, {3, -1}, {1, -3}, {-1, -3}, {-3, -1}, {-3, 1}, {-1, 3}};
+
     private final StalactiteConfig cfg;
     private final int resolution;
     private final boolean speleothem;
@@ -70,12 +79,12 @@ public class StalactiteGenerator extends BasicFeature {
                     final int maxY = Math.min(surface - SURFACE_ROOM, height.max);
                     if (maxY <= height.min) continue;
 
-                    final int y = this.stalactite ? this.findCeiling(ctx.region, dx, height.min, dz, maxY)
-                        : this.findFloor(ctx.region, dx, maxY, dz, height.min);
+                    final int y = this.stalactite ? this.findCeiling(ctx, dx, height.min, dz, maxY)
+                        : this.findFloor(ctx, dx, maxY, dz, height.min);
 
                     if (y != NONE_FOUND && conditions.noise.getBoolean(dx, y, dz)) {
                         final BlockPos pos = new BlockPos(dx, y, dz);
-                        if (checkSources(cfg.matchers, ctx.region, pos)) {
+                        if (checkSources(cfg.matchers, ctx, pos)) {
                             this.checkSpace(ctx, pos);
                         }
                     }
@@ -92,143 +101,68 @@ public class StalactiteGenerator extends BasicFeature {
             return;
         }
         if (space >= needed) {
-            this.generateSingle(ctx, pos, length, !this.stalactite);
+            final int x = pos.getX(), y = pos.getY(), z = pos.getZ();
+            this.generateSingle(ctx, x, y, z, length, !this.stalactite);
             if (this.speleothem) {
-                this.generateSingle(ctx, pos.below(space), length, true);
+                this.generateSingle(ctx, x, y - space, z, length, true);
             }
         }
     }
 
-    private void generateSingle(final WorldContext ctx, final BlockPos pos, final int length, final boolean up) {
-        this.place(ctx, pos, length, up);
+    private void generateSingle(final WorldContext ctx, final int x, final int y, final int z, final int length, final boolean up) {
+        this.place(ctx, x, y, z, length, up);
         if (length > 2 && cfg.size != StalactiteSettings.Size.SMALL) {
-            this.placeAll(ctx, length * 2 / 3, up, sidePositions(pos));
-            this.placeAll(ctx, length / 4, up, cornerPositions(pos));
+            this.placeAll(ctx, length * 2 / 3, up, x, y, z, SIDES);
+            this.placeAll(ctx, length / 4, up, x, y, z, CORNERS);
             if (length > 5 && cfg.size.ordinal() > StalactiteSettings.Size.MEDIUM.ordinal()) {
-                this.placeAll(ctx, length / 4, up, middleSidePositions(pos));
-                this.placeAll(ctx, length / 6, up, middleCornerPositions(pos));
+                this.placeAll(ctx, length / 4, up, x, y, z, MIDDLE_SIDES);
+                this.placeAll(ctx, length / 6, up, x, y, z, MIDDLE_CORNERS);
                 if (length > 9 && cfg.size.ordinal() > StalactiteSettings.Size.LARGE.ordinal()) {
-                    this.placeAll(ctx, length / 8, up, outerSidePositions(pos));
-                    this.placeAll(ctx, length / 11, up, outerCornerPositions(pos));
-                    this.placeAll(ctx, length / 8, up, outerBetweenPositions(pos));
+                    this.placeAll(ctx, length / 8, up, x, y, z, OUTER_SIDES);
+                    this.placeAll(ctx, length / 11, up, x, y, z, OUTER_CORNERS);
+                    this.placeAll(ctx, length / 8, up, x, y, z, OUTER_BETWEEN);
                 }
             }
         }
     }
 
-    private int getSpace(final WorldContext ctx, BlockPos pos, final int max) {
-        for (int i = 0; i < max; i++) {
-            // We will be at the top and need to look down.
-            pos = this.stalactite ? pos.below() : pos.above();
-            if (ctx.region.getBlockState(pos).getMaterial().isSolidBlocking()) {
-                return i;
-            }
+    private int getSpace(final WorldContext ctx, final BlockPos pos, final int max) {
+        final int x = pos.getX();
+        final int y = pos.getY();
+        final int z = pos.getZ();
+        // We will be at the top and need to look down.
+        final int found = this.stalactite ? ctx.scanDown(x, z, y - 1, y - max, true)
+            : ctx.scanUp(x, z, y + 1, y + max, true);
+        if (found == NONE_FOUND) {
+            return max;
         }
-        return max;
+        return Math.abs(found - y) - 1;
     }
 
-    private void place(final WorldContext ctx, BlockPos pos, final int length, final boolean up) {
+    private void place(final WorldContext ctx, final int x, int y, final int z, final int length, final boolean up) {
         for (int i = 0; i < length; i++) {
-            pos = up ? pos.above() : pos.below();
-            ctx.region.setBlock(pos, cfg.state, 16);
+            y = up ? y + 1 : y - 1;
+            ctx.set(x, y, z, cfg.state);
         }
     }
 
-    private void placeAll(final WorldContext ctx, int length, final boolean up, final BlockPos[] positions) {
-        for (final BlockPos pos : positions) {
+    private void placeAll(final WorldContext ctx, int length, final boolean up, final int x, final int y, final int z, final int[][] ring) {
+        for (final int[] offset : ring) {
             if (!cfg.symmetrical) {
                 final int min = length * 9 / 11;
                 length = ctx.rand.nextInt(length - min + 1) + min;
             }
-            this.findPlace(ctx, pos, length, up);
+            this.findPlace(ctx, x + offset[0], y, z + offset[1], length, up);
         }
     }
 
-    private void findPlace(final WorldContext ctx, BlockPos pos, final int length, final boolean up) {
+    private void findPlace(final WorldContext ctx, final int x, int y, final int z, final int length, final boolean up) {
         for (int i = 0; i < 3; i++) {
-            if (ctx.region.getBlockState(pos).getMaterial().isSolidBlocking()) {
-                this.place(ctx, pos, length, up);
+            if (ctx.isSolid(x, y, z)) {
+                this.place(ctx, x, y, z, length, up);
                 return;
             } // Go in the opposite direction and find a surface.
-            pos = up ? pos.below() : pos.above();
+            y = up ? y - 1 : y + 1;
         }
     }
-
-    private static BlockPos[] sidePositions(final BlockPos pos) {
-        final int x = pos.getX(), y = pos.getY(), z = pos.getZ();
-        return new BlockPos[] {
-            new BlockPos(x, y, z - 1), // North
-            new BlockPos(x, y, z + 1), // South
-            new BlockPos(x + 1, y, z), // East
-            new BlockPos(x - 1, y, z)  // West
-        };
-    }
-
-    private static BlockPos[] cornerPositions(final BlockPos pos) {
-        final int x = pos.getX(), y = pos.getY(), z = pos.getZ();
-        return new BlockPos[] {
-            new BlockPos(x + 1, y, z - 1), // Northeast
-            new BlockPos(x + 1, y, z + 1), // Southeast
-            new BlockPos(x - 1, y, z + 1), // Southwest
-            new BlockPos(x - 1, y, z - 1)  // Northwest
-        };
-    }
-
-    private static BlockPos[] middleSidePositions(final BlockPos pos) {
-        final int x = pos.getX(), y = pos.getY(), z = pos.getZ();
-        return new BlockPos[] {
-            new BlockPos(x, y, z - 2), // North
-            new BlockPos(x, y, z + 2), // South
-            new BlockPos(x + 2, y, z), // East
-            new BlockPos(x - 2, y, z)  // West
-        };
-    }
-
-    private static BlockPos[] middleCornerPositions(final BlockPos pos) {
-        final int x = pos.getX(), y = pos.getY(), z = pos.getZ();
-        return new BlockPos[] {
-            new BlockPos(x + 2, y, z + 1),
-            new BlockPos(x + 2, y, z - 1),
-            new BlockPos(x - 2, y, z + 1),
-            new BlockPos(x - 2, y, z - 1),
-            new BlockPos(x + 1, y, z + 2),
-            new BlockPos(x - 1, y, z + 2),
-            new BlockPos(x + 1, y, z - 2),
-            new BlockPos(x - 1, y, z - 2)
-        };
-    }
-
-    private static BlockPos[] outerSidePositions(final BlockPos pos) {
-        final int x = pos.getX(), y = pos.getY(), z = pos.getZ();
-        return new BlockPos[] {
-            new BlockPos(x, y, z - 3), // North
-            new BlockPos(x, y, z + 3), // South
-            new BlockPos(x + 3, y, z), // East
-            new BlockPos(x - 3, y, z)  // West
-        };
-    }
-
-    private static BlockPos[] outerBetweenPositions(final BlockPos pos) {
-        final int x = pos.getX(), y = pos.getY(), z = pos.getZ();
-        return new BlockPos[] {
-            new BlockPos(x + 2, y, z - 2), // Northeast
-            new BlockPos(x + 2, y, z + 2), // Southeast
-            new BlockPos(x - 2, y, z + 2), // Southwest
-            new BlockPos(x - 2, y, z - 2)  // Northwest
-        };
-    }
-
-    private static BlockPos[] outerCornerPositions(final BlockPos pos) {
-        final int x = pos.getX(), y = pos.getY(), z = pos.getZ();
-        return new BlockPos[] {
-            new BlockPos(x + 1, y, z + 3),
-            new BlockPos(x + 3, y, z + 1),
-            new BlockPos(x + 3, y, z - 1),
-            new BlockPos(x + 1, y, z - 3),
-            new BlockPos(x - 1, y, z - 3),
-            new BlockPos(x - 3, y, z - 1),
-            new BlockPos(x - 3, y, z + 1),
-            new BlockPos(x - 1, y, z + 3)
-        };
-    }
-}
\ No newline at end of file
+}
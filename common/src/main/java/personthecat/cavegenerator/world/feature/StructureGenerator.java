@@ -2,209 +2,202 @@ package personthecat.cavegenerator.world.feature;
 
 import lombok.extern.log4j.Log4j2;
 import net.minecraft.core.BlockPos;
-import net.minecraft.server.level.WorldGenRegion;
 import net.minecraft.world.level.block.Rotation;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructurePlaceSettings;
 import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
+import org.jetbrains.annotations.Nullable;
 import personthecat.catlib.data.Range;
 import personthecat.cavegenerator.world.config.StructureConfig;
 
-import java.util.Optional;
 import java.util.Random;
 
-import static personthecat.catlib.util.Shorthand.full;
-import static java.util.Optional.empty;
-
 @Log4j2
 public class StructureGenerator extends BasicFeature {
 
+    /** The value returned by any spawn search when no position is found. */
+    private static final long NO_POS = Long.MAX_VALUE;
+
+    /** The walls which may be searched by {@link #getSpawnPosHorizontal}. */
+    private static final int NORTH = 0;
+    private static final int SOUTH = 1;
+    private static final int EAST = 2;
+    private static final int WEST = 3;
+    private static final int ANY = 4;
+
     private final StructureConfig cfg;
-    private StructureTemplate structure;
+
+    /**
+     * A copy of the configured placement settings for each rotation. The settings are shared
+     * by every chunk and must never be mutated while spawning structures.
+     */
+    private final StructurePlaceSettings[] rotations;
 
     public StructureGenerator(StructureConfig cfg, final Random rand, final long seed) {
         super(cfg.conditions, rand, seed);
         this.cfg = cfg;
-        this.structure = null;
+        this.rotations = new StructurePlaceSettings[Rotation.values().length];
+        for (final Rotation rotation : Rotation.values()) {
+            this.rotations[rotation.ordinal()] = cfg.placement.copy().setRotation(rotation);
+        }
     }
 
     @Override
     protected void doGenerate(final WorldContext ctx) {
-        if (structure == null) structure = StructureSpawner.getTemplate(cfg.name, ctx.level);
-
         final BlockPos center = new BlockPos(ctx.centerX, 0, ctx.centerZ);
         if (conditions.biomes.test(ctx.region.getBiome(center))) {
+            final StructureTemplate structure = StructureSpawner.getTemplate(cfg.name, ctx.level);
+            final BlockPos size = structure.getSize();
+            // The center column is shared by every wall search in this chunk.
+            Range column = null;
+            boolean columnChecked = false;
             for (int i = 0; i < cfg.count; i++) {
                 if (ctx.rand.nextDouble() <= cfg.chance) {
-                    this.generateSingle(ctx);
+                    if (!columnChecked) {
+                        column = this.getCenterColumn(ctx);
+                        columnChecked = true;
+                    }
+                    this.generateSingle(ctx, structure, size, column);
                 }
             }
         }
     }
 
-    private void generateSingle(WorldContext ctx) {
-        final Optional<BlockPos> spawnPos = this.getSpawnPos(ctx)
-            .filter(pos -> conditions.noise.getBoolean(pos.getX(), pos.getY(), pos.getZ()));
+    private void generateSingle(final WorldContext ctx, final StructureTemplate structure, final BlockPos size, final @Nullable Range column) {
         // Attempt to locate a suitable spawn position and then proceed.
-        spawnPos.ifPresent(pos -> {
-            if (allChecksPass(pos, ctx.region)) {
-                this.preStructureSpawn(ctx, pos);
-                final BlockPos adjusted = centerBySize(pos, structure.getSize()).offset(cfg.offset);
-                StructureSpawner.spawnStructure(structure, cfg.placement, ctx.region, adjusted, ctx.rand);
-            }
-        });
+        final long spawnPos = this.getSpawnPos(ctx, size.getX(), size.getZ(), column);
+        if (spawnPos == NO_POS) {
+            return;
+        }
+        final int x = BlockPos.getX(spawnPos);
+        final int y = BlockPos.getY(spawnPos);
+        final int z = BlockPos.getZ(spawnPos);
+        if (!conditions.noise.getBoolean(x, y, z)) {
+            return;
+        }
+        final BlockPos pos = new BlockPos(x, y, z);
+        if (allChecksPass(pos, ctx)) {
+            final StructurePlaceSettings placement = this.preStructureSpawn(ctx, pos);
+            final BlockPos adjusted = centerBySize(pos, size).offset(cfg.offset);
+            StructureSpawner.spawnStructure(structure, placement, ctx.region, adjusted, ctx.rand);
+        }
     }
 
-    private boolean allChecksPass(final BlockPos pos, final WorldGenRegion region) {
-        return checkSources(cfg.matchers, region, pos)
-            && checkNonSolid(cfg.nonSolidChecks, region, pos)
-            && checkSolid(cfg.solidChecks, region, pos)
-            && checkAir(cfg.airChecks, region, pos)
-            && checkWater(cfg.waterChecks, region, pos)
-            && checkBlocks(cfg.blockChecks, region, pos);
+    private boolean allChecksPass(final BlockPos pos, final WorldContext ctx) {
+        return checkSources(cfg.matchers, ctx, pos)
+            && checkNonSolid(cfg.nonSolidChecks, ctx, pos)
+            && checkSolid(cfg.solidChecks, ctx, pos)
+            && checkAir(cfg.airChecks, ctx, pos)
+            && checkWater(cfg.waterChecks, ctx, pos)
+            && checkBlocks(cfg.blockChecks, ctx, pos);
     }
 
-    /** Attempts to determine a suitable spawn point in the current location. */
-    private Optional<BlockPos> getSpawnPos(final WorldContext ctx) {
+    /**
+     * Attempts to determine a suitable spawn point in the current location.
+     *
+     * @param ctx    The current world being operated on.
+     * @param sizeX  The size of the structure on the x-axis.
+     * @param sizeZ  The size of the structure on the z-axis.
+     * @param center The height range at the center of the chunk, or null if it cannot spawn there.
+     * @return The packed spawn position, or else {@link #NO_POS}.
+     */
+    private long getSpawnPos(final WorldContext ctx, final int sizeX, final int sizeZ, final @Nullable Range center) {
         // Favor vertical spawns, detecting horizontal surfaces first.
         if (cfg.directions.up || cfg.directions.down) {
-            final Optional<BlockPos> vertical = this.getSpawnPosVertical(ctx, structure);
-            if (vertical.isPresent()) {
+            final long vertical = this.getSpawnPosVertical(ctx, sizeX, sizeZ);
+            if (vertical != NO_POS) {
                 return vertical;
             } // else, try horizontal
         }
+        // Wall spawns are always searched from the center of the chunk.
+        if (center == null) {
+            return NO_POS;
+        }
         // Attempt to locate any vertical surfaces, if necessary.
         if (cfg.directions.side) {
-            return this.getSpawnPosHorizontal(ctx, structure);
+            return this.getSpawnPosHorizontal(ctx, center, sizeX, sizeZ, ANY);
         }
-        Optional<BlockPos> side = empty();
+        long side = NO_POS;
         if (cfg.directions.north) {
-            side = this.getSpawnPosN(ctx, structure);
+            side = this.getSpawnPosHorizontal(ctx, center, sizeX, sizeZ, NORTH);
         }
-        if (cfg.directions.south && !side.isPresent()) {
-            side = this.getSpawnPosS(ctx, structure);
+        if (cfg.directions.south && side == NO_POS) {
+            side = this.getSpawnPosHorizontal(ctx, center, sizeX, sizeZ, SOUTH);
         }
-        if (cfg.directions.east && !side.isPresent()) {
-            side = this.getSpawnPosE(ctx, structure);
+        if (cfg.directions.east && side == NO_POS) {
+            side = this.getSpawnPosHorizontal(ctx, center, sizeX, sizeZ, EAST);
         }
-        if (cfg.directions.west && !side.isPresent()) {
-            side = this.getSpawnPosW(ctx, structure);
+        if (cfg.directions.west && side == NO_POS) {
+            side = this.getSpawnPosHorizontal(ctx, center, sizeX, sizeZ, WEST);
         }
         return side;
     }
 
+    /** Gets the height range at the center of the chunk, or else null if walls cannot be searched. */
+    private @Nullable Range getCenterColumn(final WorldContext ctx) {
+        final Range height = conditions.getColumn(ctx.centerX, ctx.centerZ);
+        if (height.diff() != 0 && conditions.region.getBoolean(ctx.centerX, ctx.centerZ)) {
+            return height;
+        }
+        return null;
+    }
+
     /** Attempts to find a spawn point for this structure on the vertical axis. */
-    private Optional<BlockPos> getSpawnPosVertical(final WorldContext ctx, final StructureTemplate structure) {
+    private long getSpawnPosVertical(final WorldContext ctx, final int sizeX, final int sizeZ) {
+        final int worldHeight = ctx.region.getHeight();
         for (int i = 0; i < VERTICAL_RETRIES; i++) {
             // Start with random (x, z) coordinates.
-            final BlockPos xz = this.randCoords(ctx.rand, structure.getSize(), ctx.centerX, ctx.centerZ);
-            final int x = xz.getX();
-            final int z = xz.getZ();
+            final int x = this.randCoord(ctx.rand, sizeX, ctx.centerX);
+            final int z = this.randCoord(ctx.rand, sizeZ, ctx.centerZ);
+            if (!conditions.region.getBoolean(x, z)) continue;
+
             final Range height = conditions.getColumn(x, z);
             final int maxY = cfg.checkSurface
                 ? Math.min(ctx.getHeight(x, z) - SURFACE_ROOM, height.max)
-                : ctx.region.getHeight();
+                : worldHeight;
             final int minY = height.min;
-            if (minY >= maxY || !conditions.region.getBoolean(x, z)) continue;
+            if (minY >= maxY) continue;
 
             final int y;
             // Search both -> just up -> just down.
             if (cfg.directions.up && cfg.directions.down) {
-                y = this.findOpeningVertical(ctx.rand, ctx.region, x, z, minY, maxY);
+                y = this.findOpeningVertical(ctx.rand, ctx, x, z, minY, maxY);
             } else if (cfg.directions.up) {
-                y = this.randFindCeiling(ctx.region, ctx.rand, x, z, minY, maxY);
+                y = this.randFindCeiling(ctx, ctx.rand, x, z, minY, maxY);
             } else {
-                y = this.randFindFloor(ctx.region, ctx.rand, x, z, minY, maxY);
+                y = this.randFindFloor(ctx, ctx.rand, x, z, minY, maxY);
             }
             // Check to see if an opening was found, else retry;
             if (y != NONE_FOUND) {
-                return full(new BlockPos(x, y, z));
-            }
-        }
-        return empty();
-    }
-
-    /** Attempts to find a spawn point for this structure on the horizontal axes. */
-    private Optional<BlockPos> getSpawnPosHorizontal(final WorldContext ctx, StructureTemplate structure) {
-        final BlockPos size = structure.getSize();
-        final Range height = conditions.getColumn(ctx.centerX, ctx.centerZ);
-        if (height.diff() != 0 && conditions.region.getBoolean(ctx.centerX, ctx.centerZ)) {
-            for (int i = 0; i < HORIZONTAL_RETRIES; i++) {
-                final int y = height.rand(ctx.rand);
-                final Optional<BlockPos> pos;
-                if (ctx.rand.nextBoolean()) {
-                    pos = this.randCoordsNS(ctx, size.getX(), y);
-                } else {
-                    pos = this.randCoordsEW(ctx, size.getZ(), y);
-                }
-                if (pos.isPresent()) {
-                    return pos;
-                }
-            }
-        }
-        return empty();
-    }
-
-    /** Locates a northern wall as a potential spawn candidate. */
-    private Optional<BlockPos> getSpawnPosN(final WorldContext ctx, StructureTemplate structure) {
-        final BlockPos size = structure.getSize();
-        final Range height = conditions.getColumn(ctx.centerX, ctx.centerZ);
-        if (height.diff() != 0 && conditions.region.getBoolean(ctx.centerX, ctx.centerZ)) {
-            for (int i = 0; i < HORIZONTAL_RETRIES; i++) {
-                final int y = height.rand(ctx.rand);
-                final Optional<BlockPos> pos = this.randCoordsN(ctx, size.getX(), y);
-                if (pos.isPresent()) {
-                    return pos;
-                }
-            }
-        }
-        return empty();
-    }
-
-    /** Locates a southern wall as a potential spawn candidate. */
-    private Optional<BlockPos> getSpawnPosS(final WorldContext ctx, StructureTemplate structure) {
-        final BlockPos size = structure.getSize();
-        final Range height = conditions.getColumn(ctx.centerX, ctx.centerZ);
-        if (height.diff() != 0 && conditions.region.getBoolean(ctx.centerX, ctx.centerZ)) {
-            for (int i = 0; i < HORIZONTAL_RETRIES; i++) {
-                final int y = height.rand(ctx.rand);
-                final Optional<BlockPos> pos = this.randCoordsS(ctx, size.getX(), y);
-                if (pos.isPresent()) {
-                    return pos;
-                }
+                return BlockPos.asLong(x, y, z);
             }
         }
-        return empty();
+        return NO_POS;
     }
 
-    /** Locates an eastern wall as a potential spawn candidate. */
-    private Optional<BlockPos> getSpawnPosE(final WorldContext ctx, StructureTemplate structure) {
-        final BlockPos size = structure.getSize();
-        final Range height = conditions.getColumn(ctx.centerX, ctx.centerZ);
-        if (height.diff() != 0 && conditions.region.getBoolean(ctx.centerX, ctx.centerZ)) {
-            for (int i = 0; i < HORIZONTAL_RETRIES; i++) {
-                final int y = height.rand(ctx.rand);
-                final Optional<BlockPos> pos = this.randCoordsE(ctx, size.getZ(), y);
-                if (pos.isPresent()) {
-                    return pos;
-                }
+    /**
+     * Attempts to find a spawn point for this structure on the horizontal axes.
+     *
+     * @param ctx    The current world being operated on.
+     * @param height The height range at the center of the chunk.
+     * @param sizeX  The size of the structure on the x-axis.
+     * @param sizeZ  The size of the structure on the z-axis.
+     * @param side   The wall being searched for, or else {@link #ANY}.
+     * @return The packed spawn position, or else {@link #NO_POS}.
+     */
+    private long getSpawnPosHorizontal(final WorldContext ctx, final Range height, final int sizeX, final int sizeZ, final int side) {
+        for (int i = 0; i < HORIZONTAL_RETRIES; i++) {
+            final int y = height.rand(ctx.rand);
+            final long pos;
+            if (side == NORTH || side == SOUTH || (side == ANY && ctx.rand.nextBoolean())) {
+                pos = this.randCoordsNS(ctx, sizeX, y, side);
+            } else {
+                pos = this.randCoordsEW(ctx, sizeZ, y, side);
             }
-        }
-        return empty();
-    }
-
-    /** Locates a western wall as a potential spawn candidate. */
-    private Optional<BlockPos> getSpawnPosW(final WorldContext ctx, StructureTemplate structure) {
-        final BlockPos size = structure.getSize();
-        final Range height = conditions.getColumn(ctx.centerX, ctx.centerZ);
-        if (height.diff() != 0 && conditions.region.getBoolean(ctx.centerX, ctx.centerZ)) {
-            for (int i = 0; i < HORIZONTAL_RETRIES; i++) {
-                final int y = height.rand(ctx.rand);
-                final Optional<BlockPos> pos = this.randCoordsW(ctx, size.getZ(), y);
-                if (pos.isPresent()) {
-                    return pos;
-                }
+            if (pos != NO_POS) {
+                return pos;
             }
         }
-        return empty();
+        return NO_POS;
     }
 
     /**
@@ -224,81 +217,38 @@ public class StructureGenerator extends BasicFeature {
         return offset + 8; // chunk * 16 + 16
     }
 
-    /** Generates random, valid coordinate pair for this location. */
-    private BlockPos randCoords(final Random rand, final BlockPos size, final int centerX, final int centerZ) {
-        final int x = this.randCoord(rand, size.getX(), centerX);
-        final int z = this.randCoord(rand, size.getZ(), centerZ);
-        return new BlockPos(x, 0, z);
-    }
-
     /**
-     * Attempts to find a random surface on the east-west axis by scaling north-south in a random direction.
-     * Returns Optional#empty if no surface is found, or if the surface found is not below the terrain height.
+     * Attempts to find a random surface on the east-west axis by scaling north-south, either in the
+     * given direction or else in a random direction. Returns {@link #NO_POS} if no surface is found,
+     * or if the surface found is not below the terrain height.
      */
-    private Optional<BlockPos> randCoordsNS(final WorldContext ctx, final int sizeX, final int y) {
+    private long randCoordsNS(final WorldContext ctx, final int sizeX, final int y, final int side) {
         final int x = cornerInsideChunkBounds(ctx.rand, sizeX) + ctx.centerX;
-        final int z = ctx.rand.nextBoolean()
-            ? this.findOpeningNorth(ctx.region, x, y, ctx.centerZ)
-            : this.findOpeningSouth(ctx.region, x, y, ctx.centerZ);
+        final boolean north = side == ANY ? ctx.rand.nextBoolean() : side == NORTH;
+        final int z = north
+            ? this.findOpeningNorth(ctx, x, y, ctx.centerZ)
+            : this.findOpeningSouth(ctx, x, y, ctx.centerZ);
         if (z != NONE_FOUND && y < ctx.getHeight(x, z)) {
-            return full(new BlockPos(x, y, z));
+            return BlockPos.asLong(x, y, z);
         }
-        return empty();
+        return NO_POS;
     }
 
     /**
-     * Attempts to find a random surface on the north-south axis by scaling east-west in a random direction.
-     * Returns Optional#empty if no surface is found, or if the surface found is not below the terrain height.
+     * Attempts to find a random surface on the north-south axis by scaling east-west, either in the
+     * given direction or else in a random direction. Returns {@link #NO_POS} if no surface is found,
+     * or if the surface found is not below the terrain height.
      */
-    private Optional<BlockPos> randCoordsEW(final WorldContext ctx, int sizeZ, int y) {
-        final int z = cornerInsideChunkBounds(ctx.rand, sizeZ) + ctx.centerZ;
-        final int x = ctx.rand.nextBoolean()
-            ? this.findOpeningEast(ctx.region, y, z, ctx.centerX)
-            : this.findOpeningWest(ctx.region, y, z, ctx.centerX);
-        if (x != NONE_FOUND && y < ctx.getHeight(x, z)) {
-            return full(new BlockPos(x, y, z));
-        }
-        return empty();
-    }
-
-    /** Variant of #randCoords which operates north-bound only. */
-    private Optional<BlockPos> randCoordsN(final WorldContext ctx, int sizeX, int y) {
-        final int x = cornerInsideChunkBounds(ctx.rand, sizeX) + ctx.centerX;
-        final int z = this.findOpeningNorth(ctx.region, x, y, ctx.centerZ);
-        if (z != NONE_FOUND && y < ctx.getHeight(x, z)) {
-            return full(new BlockPos(x, y, z));
-        }
-        return empty();
-    }
-
-    /** Variant of #randCoordsNS which operates south-bound only. */
-    private Optional<BlockPos> randCoordsS(final WorldContext ctx, int sizeX, int y) {
-        final int x = cornerInsideChunkBounds(ctx.rand, sizeX) + ctx.centerX;
-        final int z = this.findOpeningSouth(ctx.region, x, y, ctx.centerZ);
-        if (z != NONE_FOUND && y < ctx.getHeight(x, z)) {
-            return full(new BlockPos(x, y, z));
-        }
-        return empty();
-    }
-
-    /** Variant of #randCoordsEW which operates east-bound only. */
-    private Optional<BlockPos> randCoordsE(final WorldContext ctx, int sizeZ, int y) {
-        final int z = cornerInsideChunkBounds(ctx.rand, sizeZ) + ctx.centerZ;
-        final int x = this.findOpeningEast(ctx.region, y, z, ctx.centerX);
-        if (x != NONE_FOUND && y < ctx.getHeight(x, z)) {
-            return full(new BlockPos(x, y, z));
-        }
-        return empty();
-    }
-
-    /** Variant of #randCoordsEW which operates west-bound only. */
-    private Optional<BlockPos> randCoordsW(final WorldContext ctx, int sizeZ, int y) {
+    private long randCoordsEW(final WorldContext ctx, final int sizeZ, final int y, final int side) {
         final int z = cornerInsideChunkBounds(ctx.rand, sizeZ) + ctx.centerZ;
-        final int x = this.findOpeningWest(ctx.region, y, z, ctx.centerX);
+        final boolean east = side == ANY ? ctx.rand.nextBoolean() : side == EAST;
+        final int x = east
+            ? this.findOpeningEast(ctx, y, z, ctx.centerX)
+            : this.findOpeningWest(ctx, y, z, ctx.centerX);
         if (x != NONE_FOUND && y < ctx.getHeight(x, z)) {
-            return full(new BlockPos(x, y, z));
+            return BlockPos.asLong(x, y, z);
         }
-        return empty();
+        return NO_POS;
     }
 
     /** Moves each dimension by half of `size` in the opposite direction. */
@@ -308,12 +258,15 @@ public class StructureGenerator extends BasicFeature {
         return toCenter.offset(xOffset, 0, zOffset);
     }
 
-    /** All operations related to structures before spawning should be organized herein. */
-    private void preStructureSpawn(final WorldContext ctx, final BlockPos pos) {
-        if (cfg.rotateRandomly) {
-            final Rotation randRotation = Rotation.values()[ctx.rand.nextInt(3)];
-            cfg.placement.setRotation(randRotation);
-        }
+    /**
+     * All operations related to structures before spawning should be organized herein.
+     *
+     * @return The placement settings to spawn this structure with.
+     */
+    private StructurePlaceSettings preStructureSpawn(final WorldContext ctx, final BlockPos pos) {
+        final StructurePlaceSettings placement = cfg.rotateRandomly
+            ? this.rotations[Rotation.values()[ctx.rand.nextInt(3)].ordinal()]
+            : cfg.placement;
         if (cfg.debugSpawns) {
             log.info("Spawning {} at {}", cfg.name, pos);
         }
@@ -324,6 +277,7 @@ public class StructureGenerator extends BasicFeature {
                 .replace("{z}", String.valueOf(pos.getZ()));
             ctx.execute(interpolated);
         }
+        return placement;
     }
 
     /**
@@ -12,14 +12,14 @@ import personthecat.catlib.event.error.LibErrorContext;
 import personthecat.catlib.exception.FormattedIOException;
 import personthecat.cavegenerator.CaveRegistries;
 import personthecat.cavegenerator.exception.MissingTemplateException;
+import personthecat.cavegenerator.presets.CavePreset;
+import personthecat.cavegenerator.presets.data.StructureSettings;
 import personthecat.cavegenerator.util.Reference;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
+import java.util.*;
 
 import static personthecat.catlib.io.FileIO.listFiles;
 import static personthecat.catlib.util.PathUtils.extension;
@@ -29,21 +29,42 @@ import static personthecat.cavegenerator.io.ModFolders.STRUCTURE_DIR;
 @Log4j2
 public class StructureSpawner {
 
+    /** The maximum number of templates which may be held in memory at once. */
+    private static final int MAX_CACHED_TEMPLATES = 64;
+
+    /** Templates which have been loaded on demand, evicted in LRU order. */
+    private static final Map<String, StructureTemplate> TEMPLATE_CACHE =
+        new LinkedHashMap<String, StructureTemplate>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, StructureTemplate> eldest) {
+                return this.size() > MAX_CACHED_TEMPLATES;
+            }
+        };
+
     /**
-     * Loads each structures out of <code>cavegenerator/structures</code> into a map.
-     * This map will be used as the mod's main structure registry later on.
+     * Locates each structure in <code>cavegenerator/structures</code> which is referenced by
+     * an enabled preset. This map will be used as the mod's main structure registry later on.
+     * Templates are not read until they are first needed.
      *
-     * @return A map of filename (no extension) -> template
+     * @return A map of filename (no extension) -> file
      */
-    public static Map<String, StructureTemplate> initStructures() {
-        final Map<String, StructureTemplate> structures = new HashMap<>();
-
+    public static Map<String, File> initStructures() {
+        synchronized (TEMPLATE_CACHE) {
+            TEMPLATE_CACHE.clear();
+        }
+        final Set<String> referenced = new HashSet<>();
+        for (final CavePreset preset : CaveRegistries.PRESETS.values()) {
+            for (final StructureSettings structure : preset.settings.structures) {
+                referenced.add(structure.name);
+            }
+        }
+        final Map<String, File> structures = new HashMap<>();
         for (final File f : listFiles(STRUCTURE_DIR, f -> "nbt".equals(extension(f)))) {
-            final StructureTemplate template = loadStructure(f);
-            warnIfLarge(template, f);
-            structures.put(noExtension(f), template);
+            final String name = noExtension(f);
+            if (referenced.contains(name)) {
+                structures.put(name, f);
+            }
         }
-
         return structures;
     }
 
@@ -81,16 +102,38 @@ public class StructureSpawner {
 
     /**
      * Attempts to locate a {@link StructureTemplate} when given either a filename or a resource
-     * location.
+     * location. Templates from the structures folder are loaded on first use and cached. This
+     * method is safe to call from any thread.
      *
      * @param id    The filename (no extension) <b>or</b> a resource ID.
      * @param level A server world providing access to the regular data pack structures.
      * @return A standard {@link StructureTemplate}, either from file or data pack.
      */
     public static StructureTemplate getTemplate(final String id, final ServerLevel level) {
-        final StructureTemplate template = CaveRegistries.STRUCTURES.getOptional(id)
-            .orElseGet(() -> level.getServer().getStructureManager().get(new ResourceLocation(id)));
+        synchronized (TEMPLATE_CACHE) {
+            final StructureTemplate cached = TEMPLATE_CACHE.get(id);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final StructureTemplate template = loadTemplate(id, level);
+        synchronized (TEMPLATE_CACHE) {
+            // Another thread may have loaded this template in the meantime.
+            final StructureTemplate loaded = TEMPLATE_CACHE.putIfAbsent(id, template);
+            return loaded != null ? loaded : template;
+        }
+    }
+
+    private static StructureTemplate loadTemplate(final String id, final ServerLevel level) {
+        final Optional<File> file = CaveRegistries.STRUCTURES.getOptional(id);
+        if (file.isPresent()) {
+            final StructureTemplate template = loadStructure(file.get());
+            warnIfLarge(template, file.get());
+            return template;
+        }
+        final StructureTemplate template = level.getServer().getStructureManager().get(new ResourceLocation(id));
         if (template == null) {
+            // Cached so that this error will not be reported repeatedly.
             LibErrorContext.error(Reference.MOD, new MissingTemplateException(id));
             return new StructureTemplate();
         }
@@ -1,19 +1,29 @@
 package personthecat.cavegenerator.world.feature;
 
-import com.mojang.brigadier.CommandDispatcher;
-import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import lombok.extern.log4j.Log4j2;
-import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.core.BlockPos;
 import net.minecraft.server.level.WorldGenRegion;
+import net.minecraft.world.entity.ai.village.poi.PoiType;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.LevelChunkSection;
 import net.minecraft.world.level.levelgen.Heightmap;
 import personthecat.cavegenerator.CaveRegistries;
+import personthecat.cavegenerator.util.PlatformUtils;
 
 import java.util.Random;
 
+import static personthecat.cavegenerator.util.CommonBlocks.BLK_AIR;
+import static personthecat.cavegenerator.util.CommonBlocks.BLK_VOID;
+
 @Log4j2
 public class WorldContext {
 
+    /** The value returned by any column scan when no block is found. */
+    public static final int NONE_FOUND = Integer.MIN_VALUE;
+
     public final Random rand;
     public final int chunkX;
     public final int chunkZ;
@@ -24,7 +34,15 @@ public class WorldContext {
     public final long seed;
     public final WorldGenRegion region;
     public final ServerLevel level;
-    public final CommandDispatcher<CommandSourceStack> dispatcher;
+
+    /** The chunk being decorated, which most blocks are placed into. */
+    private final ChunkAccess chunk;
+    private final BlockPos.MutableBlockPos mutable = new BlockPos.MutableBlockPos();
+
+    /** The sections of the chunk most recently accessed, which is usually accessed again. */
+    private LevelChunkSection[] sections;
+    private int sectionsX;
+    private int sectionsZ;
 
     public WorldContext(final WorldGenRegion region) {
         this.rand = region.getRandom();
@@ -37,23 +55,171 @@ public class WorldContext {
         this.seed = region.getSeed();
         this.region = region;
         this.level = region.getLevel();
-        this.dispatcher = level.getServer().getCommands().getDispatcher();
+        this.chunk = region.getChunk(this.chunkX, this.chunkZ);
     }
 
     public int getHeight(final int x, final int y) {
         return this.region.getHeight(Heightmap.Types.OCEAN_FLOOR, x, y);
     }
 
-    public void execute(final String cmd) {
-        final CommandSourceStack source = CaveRegistries.COMMAND_SOURCE.get();
-        if (source == null) {
-            log.error("No command source in mod context. Cannot run {}", cmd);
+    /**
+     * Reimplementation of {@link WorldGenRegion#getBlockState} which avoids the unnecessary
+     * allocation of additional {@link BlockPos} containers and reuses the
+     * chunk from the previous call, if possible.
+     *
+     * @param x The absolute x-coordinate of the expected block.
+     * @param y The y-coordinate of the expected block.
+     * @param z The absolute z-coordinate of the expected block.
+     * @return The block state located at this position.
+     */
+    public BlockState get(final int x, final int y, final int z) {
+        if (Level.isOutsideBuildHeight(y)) {
+            return BLK_VOID;
+        }
+        final LevelChunkSection section = this.getSections(x, z)[y >> 4];
+        if (LevelChunkSection.isEmpty(section)) {
+            return BLK_AIR;
+        }
+        return section.getBlockState(x & 15, y & 15, z & 15);
+    }
+
+    /**
+     * Determines whether the block at the input coordinates is a solid cube.
+     *
+     * @param x The absolute x-coordinate of the block in question.
+     * @param y The y-coordinate of the block in question.
+     * @param z The absolute z-coordinate of the block in question.
+     * @return <code>true</code> If the block at this position is solid.
+     */
+    public boolean isSolid(final int x, final int y, final int z) {
+        return this.get(x, y, z).getMaterial().isSolidBlocking();
+    }
+
+    /**
+     * Scans down a single column for the first block which is or is not a solid cube. When
+     * searching for solid blocks, empty sections are skipped entirely.
+     *
+     * @param x     The absolute x-coordinate of the column.
+     * @param z     The absolute z-coordinate of the column.
+     * @param fromY The first y-coordinate to check, inclusive.
+     * @param toY   The last y-coordinate to check, inclusive.
+     * @param solid Whether to search for a solid or a non-solid block.
+     * @return The y-coordinate of the block, or else {@link #NONE_FOUND}.
+     */
+    public int scanDown(final int x, final int z, final int fromY, final int toY, final boolean solid) {
+        final LevelChunkSection[] sections = this.getSections(x, z);
+        final int lX = x & 15;
+        final int lZ = z & 15;
+        int y = fromY;
+        while (y >= toY) {
+            if (Level.isOutsideBuildHeight(y)) {
+                if (!solid) return y;
+                if (y < 0) return NONE_FOUND;
+                y = 255;
+                continue;
+            }
+            final LevelChunkSection section = sections[y >> 4];
+            if (LevelChunkSection.isEmpty(section)) {
+                if (!solid) return y;
+                y = (y & ~15) - 1;
+                continue;
+            }
+            if (section.getBlockState(lX, y & 15, lZ).getMaterial().isSolidBlocking() == solid) {
+                return y;
+            }
+            y--;
+        }
+        return NONE_FOUND;
+    }
+
+    /**
+     * Scans up a single column for the first block which is or is not a solid cube. When
+     * searching for solid blocks, empty sections are skipped entirely.
+     *
+     * @param x     The absolute x-coordinate of the column.
+     * @param z     The absolute z-coordinate of the column.
+     * @param fromY The first y-coordinate to check, inclusive.
+     * @param toY   The last y-coordinate to check, inclusive.
+     * @param solid Whether to search for a solid or a non-solid block.
+     * @return The y-coordinate of the block, or else {@link #NONE_FOUND}.
+     */
+    public int scanUp(final int x, final int z, final int fromY, final int toY, final boolean solid) {
+        final LevelChunkSection[] sections = this.getSections(x, z);
+        final int lX = x & 15;
+        final int lZ = z & 15;
+        int y = fromY;
+        while (y <= toY) {
+            if (Level.isOutsideBuildHeight(y)) {
+                if (!solid) return y;
+                if (y > 255) return NONE_FOUND;
+                y = 0;
+                continue;
+            }
+            final LevelChunkSection section = sections[y >> 4];
+            if (LevelChunkSection.isEmpty(section)) {
+                if (!solid) return y;
+                y = (y | 15) + 1;
+                continue;
+            }
+            if (section.getBlockState(lX, y & 15, lZ).getMaterial().isSolidBlocking() == solid) {
+                return y;
+            }
+            y++;
+        }
+        return NONE_FOUND;
+    }
+
+    /**
+     * Places a block without allocating a new {@link BlockPos} or looking up the chunk. This
+     * is only possible for simple blocks in the chunk being decorated. Any other blocks,
+     * including any which replace a block entity or a point of interest, are placed via
+     * {@link WorldGenRegion#setBlock} so that they are handled exactly as in vanilla.
+     *
+     * @param x     The absolute x-coordinate of the block being placed.
+     * @param y     The y-coordinate of the block being placed.
+     * @param z     The absolute z-coordinate of the block being placed.
+     * @param state The block to be placed at the given coordinates.
+     */
+    public void set(final int x, final int y, final int z, final BlockState state) {
+        this.mutable.set(x, y, z);
+        if ((x >> 4) != this.chunkX || (z >> 4) != this.chunkZ || requiresRegion(state)
+                || requiresRegion(this.chunk.getBlockState(this.mutable))) {
+            this.region.setBlock(this.mutable, state, 16);
             return;
         }
-        try {
-            this.dispatcher.execute(cmd, source);
-        } catch (final CommandSyntaxException e) {
-            log.error("Running " + cmd, e);
+        this.chunk.setBlockState(this.mutable, state, false);
+        if (state.hasPostProcess(this.region, this.mutable)) {
+            this.chunk.markPosForPostprocessing(this.mutable);
+        }
+    }
+
+    private static boolean requiresRegion(final BlockState state) {
+        return PlatformUtils.hasBlockEntity(state) || PoiType.forState(state).isPresent();
+    }
+
+    private LevelChunkSection[] getSections(final int x, final int z) {
+        final int cX = x >> 4;
+        final int cZ = z >> 4;
+        if (this.sections == null || cX != this.sectionsX || cZ != this.sectionsZ) {
+            final ChunkAccess chunk = this.region.getChunk(cX, cZ);
+            this.sections = chunk.getSections();
+            this.sectionsX = cX;
+            this.sectionsZ = cZ;
+        }
+        return this.sections;
+    }
+
+    /**
+     * Queues a command to be run on the server thread. World generation threads never
+     * block on command execution.
+     *
+     * @param cmd The raw command being executed, without a leading slash.
+     */
+    public void execute(final String cmd) {
+        if (CaveRegistries.COMMAND_SOURCE.get() == null) {
+            log.error("No command source in mod context. Cannot run {}", cmd);
+        } else if (!CaveRegistries.COMMAND_SOURCE.submit(cmd)) {
+            log.warn("Too many commands are queued. Skipping {}", cmd);
         }
     }
 }
@@ -1,8 +1,8 @@
 package personthecat.cavegenerator.world.generator;
 
-import net.minecraft.core.BlockPos;
 import personthecat.catlib.data.Range;
-import personthecat.cavegenerator.model.PositionFlags;
+import personthecat.cavegenerator.model.VoxelSet;
+import personthecat.cavegenerator.model.SocketHeightCache;
 import personthecat.cavegenerator.world.config.BurrowConfig;
 import personthecat.fastnoise.FastNoise;
 import java.util.Random;
@@ -12,48 +12,90 @@ public class BurrowGenerator extends CaveCarver implements TunnelSocket {
     private final FastNoise map;
     private final FastNoise offset;
     protected final BurrowConfig cfg;
-    private final PositionFlags caverns;
+    private final ThreadLocal<VoxelSet> caverns = ThreadLocal.withInitial(VoxelSet::new);
+    private final SocketHeightCache socketHeights = new SocketHeightCache();
     private final double mid;
     private final double midShelled;
     private final double radiusShelled;
 
+    /** The wall curve for every vertical distance from the center within this range. */
+    private static final int CURVE_RANGE = 256;
+    private final double[] curves = new double[CURVE_RANGE * 2 + 1];
+
+    /** Column data for the chunk being generated on each thread. */
+    private final ThreadLocal<Columns> columns = ThreadLocal.withInitial(Columns::new);
+
     public BurrowGenerator(final BurrowConfig cfg, final Random rand, final long seed) {
         super(cfg.conditions, cfg.decorators, rand, seed);
         this.map = cfg.map;
         this.offset = cfg.offset;
         this.cfg = cfg;
-        this.caverns = new PositionFlags((int) (16 * 16 * (cfg.radius + cfg.decorators.shell.radius) * cfg.stretch * 2) + 1);
         this.mid = cfg.radius / Math.pow(cfg.target, cfg.exponent);
         this.radiusShelled = cfg.radius + cfg.decorators.shell.radius;
 
         final double ratio = (this.radiusShelled / cfg.radius);
         this.midShelled = this.radiusShelled / Math.pow(cfg.target * ratio, cfg.exponent);
+
+        for (int i = 0; i < this.curves.length; i++) {
+            this.curves[i] = this.computeBiomeCurve(i - CURVE_RANGE);
+        }
     }
 
     @Override
     protected void generateChecked(final PrimerContext ctx) {
-        if (this.hasShell()) {
-            this.generateShelled(ctx);
+        final boolean shelled = this.hasShell();
+        final Columns columns = this.columns.get();
+        final VoxelSet caverns = this.caverns.get();
+        this.sampleColumns(ctx, columns, shelled);
+        if (shelled) {
+            this.generateShelled(ctx, columns, caverns);
         } else {
-            this.generateUnShelled(ctx);
+            this.generateUnShelled(ctx, columns, caverns);
         }
-        this.decorateAll(ctx, this.caverns, ctx.localRand);
-        this.caverns.reset();
+        this.placeShells(ctx, ctx.localRand);
+        this.decorateAll(ctx, caverns, ctx.localRand);
+        caverns.reset();
     }
 
-    private void generateShelled(final PrimerContext ctx) {
+    /**
+     * Samples both noise maps for every column in the current chunk up front. The offset
+     * map is only sampled for columns which will be carved or shelled.
+     *
+     * @param ctx     The current early generation context.
+     * @param columns Receives the data sampled for each column.
+     * @param shelled Whether the radius of the shell is needed.
+     */
+    private void sampleColumns(final PrimerContext ctx, final Columns columns, final boolean shelled) {
         for (int x = 0; x < 16; x++) {
             final int aX = ctx.actualX + x;
             for (int z = 0; z < 16; z++) {
                 final int aZ = ctx.actualZ + z;
-                final double distance = this.getNearestBorder(aX, aZ);
+                final int i = x << 4 | z;
                 final double value = this.map.getNoise(aX, aZ);
-                final double shifted = this.cfg.shift + value;
-                final int cap = (int) (this.cfg.stretch * (this.cfg.radius - (Math.pow(shifted, this.cfg.exponent) * this.mid)));
-                final int shell = (int) (this.cfg.stretch * (this.radiusShelled - (Math.pow(shifted, this.cfg.exponent) * this.midShelled)));
+                final double curve = Math.pow(this.cfg.shift + value, this.cfg.exponent);
+                final int cap = (int) (this.cfg.stretch * (this.cfg.radius - (curve * this.mid)));
+                final int shell = shelled ? (int) (this.cfg.stretch * (this.radiusShelled - (curve * this.midShelled))) : 0;
+                columns.caps[i] = cap;
+                columns.shells[i] = shell;
+                if (cap > 0 || shell > 0) {
+                    columns.centers[i] = (int) this.offset.getNoiseScaled(aX, aZ);
+                }
+            }
+        }
+    }
+
+    private void generateShelled(final PrimerContext ctx, final Columns columns, final VoxelSet caverns) {
+        for (int x = 0; x < 16; x++) {
+            final int aX = ctx.actualX + x;
+            for (int z = 0; z < 16; z++) {
+                final int aZ = ctx.actualZ + z;
+                final int i = x << 4 | z;
+                final int cap = columns.caps[i];
+                final int shell = columns.shells[i];
 
                 if (cap > 0) {
-                    final int centerY = (int) this.offset.getNoiseScaled(aX, aZ);
+                    final double distance = this.getNearestBorder(aX, aZ);
+                    final int centerY = columns.centers[i];
                     final Range height = this.conditions.getColumn(ctx, aX, aZ);
                     final int min = Math.max(centerY - cap, height.min);
                     final int max = Math.min(centerY + cap, height.max);
@@ -63,18 +105,23 @@ public class BurrowGenerator extends CaveCarver implements TunnelSocket {
                     this.coverOuter(ctx, distance, x, z, minShell, min, centerY);
                     this.coverOuter(ctx, distance, x, z, max, maxShell, centerY);
                     for (int y = min; y < max + 1; y++) {
+                        if (!this.carvesAir && ctx.isEmptySection(y)) {
+                            y |= 15;
+                            continue;
+                        }
                         final double curve = distance - this.getBiomeCurve(centerY - y);
                         if (curve > this.cfg.wallDistance) {
                             if (this.replaceBlock(ctx, ctx.localRand, x, y, z)) {
-                                this.caverns.add(x, y, z);
+                                caverns.add(x, y, z);
                             }
                         }
                         else if (curve > this.cfg.wallDistance - this.decorators.shell.radius) {
-                            this.generateShell(ctx, ctx.localRand, x, y, z, centerY);
+                            this.addShell(x, y, z, centerY);
                         }
                     }
                 } else if (shell > 0) {
-                    final int centerY = (int) this.offset.getNoiseScaled(aX, aZ);
+                    final double distance = this.getNearestBorder(aX, aZ);
+                    final int centerY = columns.centers[i];
                     final Range height = this.conditions.getColumn(ctx, aX, aZ);
                     final int minShell = Math.max(0, Math.max(centerY - shell, height.min));
                     final int maxShell = Math.min(255, Math.min(centerY + shell, height.max));
@@ -85,35 +132,43 @@ public class BurrowGenerator extends CaveCarver implements TunnelSocket {
     }
 
     private void coverOuter(PrimerContext ctx, double distance, int x, int z, int min, int max, int centerY) {
+        // The shell lies entirely inside of the cavern in this column.
+        if (max < min) {
+            return;
+        }
+        final double threshold = this.cfg.wallDistance - this.decorators.shell.radius;
         for (int y = min; y < max + 1; y++) {
             final double curve = distance - this.getBiomeCurve(centerY - y);
-            if (curve > this.cfg.wallDistance - this.decorators.shell.radius) {
-                this.generateShell(ctx, ctx.localRand, x, y, z, centerY);
+            if (curve > threshold) {
+                this.addShell(x, y, z, centerY);
             }
         }
     }
 
-    private void generateUnShelled(PrimerContext ctx) {
+    private void generateUnShelled(PrimerContext ctx, Columns columns, VoxelSet caverns) {
         for (int x = 0; x < 16; x++) {
             final int aX = ctx.actualX + x;
             for (int z = 0; z < 16; z++) {
                 final int aZ = ctx.actualZ + z;
-                final double distance = this.getNearestBorder(aX, aZ);
-                final double value = this.map.getNoise(aX, aZ);
-                final double shifted = this.cfg.shift + value;
-                final int cap = (int) (this.cfg.stretch * (this.cfg.radius - (Math.pow(shifted, this.cfg.exponent) * this.mid)));
+                final int i = x << 4 | z;
+                final int cap = columns.caps[i];
 
                 if (cap > 0) {
-                    final int centerY = (int) this.offset.getNoiseScaled(aX, aZ);
+                    final double distance = this.getNearestBorder(aX, aZ);
+                    final int centerY = columns.centers[i];
                     final Range height = this.conditions.getColumn(ctx, aX, aZ);
                     final int min = Math.max(centerY - cap, height.min);
                     final int max = Math.min(centerY + cap, height.max);
 
                     for (int y = min; y < max + 1; y++) {
+                        if (!this.carvesAir && ctx.isEmptySection(y)) {
+                            y |= 15;
+                            continue;
+                        }
                         final double curve = distance - this.getBiomeCurve(centerY - y);
                         if (curve > this.cfg.wallDistance) {
                             if (this.replaceBlock(ctx, ctx.localRand, x, y, z)) {
-                                this.caverns.add(x, y, z);
+                                caverns.add(x, y, z);
                             }
                         }
                     }
@@ -122,24 +177,36 @@ public class BurrowGenerator extends CaveCarver implements TunnelSocket {
         }
     }
 
-    private double getBiomeCurve(final double relY) {
+    /**
+     * Looks up the precomputed wall curve for the given distance from the center of the
+     * burrow. Any distance outside of the table is computed on demand.
+     *
+     * @param relY The vertical distance from the center of the burrow.
+     * @return The value subtracted from the distance to the nearest border.
+     */
+    private double getBiomeCurve(final int relY) {
+        final int i = relY + CURVE_RANGE;
+        if (i >= 0 && i < this.curves.length) {
+            return this.curves[i];
+        }
+        return this.computeBiomeCurve(relY);
+    }
+
+    private double computeBiomeCurve(final double relY) {
         final double curve = (Math.pow(relY, this.cfg.wallExponent) / this.cfg.radius);
         return Math.min(this.cfg.radius * 2.0, curve);
     }
 
-    private double getNearestBorder(final int x, final int z) {
-        double shortestDistance = Double.MAX_VALUE;
-
-        for (BlockPos pos : this.invalidChunks) {
-            final double sum = Math.pow(x - pos.getX(), 2) + Math.pow(z - pos.getZ(), 2);
-            final double distance = Math.sqrt(sum);
-            shortestDistance = Math.min(distance, shortestDistance);
+    @Override
+    public int getTunnelHeight(Random rand, int x, int z, int chunkX, int chunkZ) {
+        final int cached = this.socketHeights.get(x, z, 0);
+        if (cached != SocketHeightCache.MISSING) {
+            return cached;
         }
-        return shortestDistance;
+        return this.socketHeights.put(x, z, 0, this.computeTunnelHeight(x, z));
     }
 
-    @Override
-    public int getTunnelHeight(Random rand, int x, int z, int chunkX, int chunkZ) {
+    private int computeTunnelHeight(final int x, final int z) {
         final double value = this.map.getNoise(x, z);
         final double shifted = this.cfg.shift + value;
         final int cap = (int) (this.cfg.stretch * (this.cfg.radius - (Math.pow(shifted, this.cfg.exponent) * this.mid)));
@@ -153,4 +220,11 @@ public class BurrowGenerator extends CaveCarver implements TunnelSocket {
         }
         return CANNOT_SPAWN;
     }
+
+    /** Per-column data sampled for a single chunk, indexed by <code>x << 4 | z</code>. */
+    private static class Columns {
+        final int[] caps = new int[256];
+        final int[] shells = new int[256];
+        final int[] centers = new int[256];
+    }
 }
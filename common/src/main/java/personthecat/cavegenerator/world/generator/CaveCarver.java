@@ -5,9 +5,10 @@ import net.minecraft.world.level.block.state.BlockState;
 import personthecat.cavegenerator.model.*;
 import personthecat.cavegenerator.world.config.*;
 
-import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
+import static personthecat.cavegenerator.util.CommonBlocks.BLK_AIR;
 import static personthecat.cavegenerator.util.CommonBlocks.BLK_CAVE;
 
 public abstract class CaveCarver extends EarlyGenerator {
@@ -15,9 +16,30 @@ public abstract class CaveCarver extends EarlyGenerator {
     protected final DecoratorConfig decorators;
     protected final int maxPondDepth;
 
+    /** The wall decorators for each direction, grouped with their combined filters. */
+    protected final WallDecoratorTable walls;
+
+    /**
+     * Shell positions accumulated for the current chunk, if this carver has a shell.
+     * Carvers are shared between worker threads, so each thread uses its own mask.
+     */
+    private final ThreadLocal<ShellMask> shells;
+
+    /**
+     * A 256-bit mask of pond floor candidates for every column, indexed by <code>x << 4 | z</code>.
+     * Carvers are shared between worker threads, so each thread uses its own mask.
+     */
+    private final ThreadLocal<long[]> pondColumns = ThreadLocal.withInitial(() -> new long[256 * 4]);
+
+    /** Whether this carver has any effect in empty sections, where every block is air. */
+    protected final boolean carvesAir;
+
     public CaveCarver(final ConditionConfig conditions, final DecoratorConfig decorators, final Random rand, final long seed) {
         super(conditions, rand, seed);
         this.decorators = decorators;
+        this.walls = new WallDecoratorTable(decorators.wallMap);
+        this.shells = decorators.shell.decorators.isEmpty() ? null : ThreadLocal.withInitial(ShellMask::new);
+        this.carvesAir = this.shells != null || decorators.canReplace.test(BLK_AIR);
 
         int max = 0;
         for (final PondConfig pond : decorators.ponds) {
@@ -65,12 +87,14 @@ public abstract class CaveCarver extends EarlyGenerator {
                     for (final BlockState state : block.states) {
                         if (rand.nextFloat() <= block.integrity) {
                             ctx.set(x, y, z, state);
+                            this.markCarved(x, y, z);
                             return true;
                         }
                     }
                 }
             }
             ctx.set(x, y, z, BLK_CAVE);
+            this.markCarved(x, y, z);
             return true;
         }
         return false;
@@ -83,7 +107,7 @@ public abstract class CaveCarver extends EarlyGenerator {
      * @param positions A set of block positions indicating which blocks were updated.
      * @param rand      A RNG used for <b>decoration purposes only</b>.
      */
-    protected void decorateAll(PrimerContext ctx, PositionFlags positions, Random rand) {
+    protected void decorateAll(PrimerContext ctx, PositionSet positions, Random rand) {
         if (this.hasPonds()) {
             this.generatePond(ctx, positions, rand);
         }
@@ -93,14 +117,37 @@ public abstract class CaveCarver extends EarlyGenerator {
     }
 
     /**
-     * Generates a pond feature which is local to the caverns being generated.
+     * Generates a pond feature which is local to the caverns being generated. Candidates are
+     * first sorted into columns and are then evaluated from the top of each column down.
+     *
+     * <p>Neighboring chunks cannot be read while carving, which means that columns on the
+     * edge of the chunk can never contain a pond. These columns are skipped entirely.
      *
      * @param ctx       The current early generation context.
      * @param positions A set of relative block positions indicating which blocks were updated.
      * @param rand      A RNG used for <b>decoration purposes only</b>.
      */
-    protected void generatePond(PrimerContext ctx, PositionFlags positions, Random rand) {
-        positions.forEach((x, y, z) -> evaluatePond(ctx, rand, x, y, z));
+    protected void generatePond(PrimerContext ctx, PositionSet positions, Random rand) {
+        final long[] columns = this.pondColumns.get();
+        positions.forEach((x, y, z) -> {
+            if (x > 0 && x < 15 && z > 0 && z < 15) {
+                columns[(x << 4 | z) << 2 | y >> 6] |= 1L << (y & 63);
+            }
+        });
+        for (int x = 1; x < 15; x++) {
+            for (int z = 1; z < 15; z++) {
+                final int column = (x << 4 | z) << 2;
+                for (int w = 3; w >= 0; w--) {
+                    long bits = columns[column | w];
+                    columns[column | w] = 0L;
+                    while (bits != 0) {
+                        final int b = 63 - Long.numberOfLeadingZeros(bits);
+                        bits &= ~(1L << b);
+                        this.evaluatePond(ctx, rand, x, w << 6 | b, z);
+                    }
+                }
+            }
+        }
     }
 
     /**
@@ -109,19 +156,19 @@ public abstract class CaveCarver extends EarlyGenerator {
      *
      * @param ctx  The current early generation context.
      * @param rand A RNG used for <b>decoration purposes only</b>.
-     * @param x    The relative x-coordinate being tested.
+     * @param x    The relative x-coordinate being tested, not on the edge of the chunk.
      * @param y    The relative y-coordinate being tested.
-     * @param z    The relative z-coordinate being tested.
+     * @param z    The relative z-coordinate being tested, not on the edge of the chunk.
      */
     private void evaluatePond(PrimerContext ctx, Random rand, int x, int y, int z) {
         final BlockState candidate = ctx.get(x, y - 1, z);
         if (candidate.isAir()) {
             return;
         }
-        if (anySolid(getSurrounding(ctx, x, y, z))) {
+        if (anySolid(ctx, x, y, z)) {
             return;
         }
-        if (anyAir(getSurrounding(ctx, x, y - 1, z))) {
+        if (anyAir(ctx, x, y - 1, z)) {
             return;
         }
         int d = 1;
@@ -133,54 +180,37 @@ public abstract class CaveCarver extends EarlyGenerator {
     }
 
     /**
-     * Returns an array of the four blocks surrounding the current position horizontally.
+     * Determines whether any of the four blocks surrounding the current position horizontally
+     * are solid and thus viable candidates for pond placement.
      *
-     * @param ctx  The current early generation context.
-     * @param x    The relative x-coordinate being tested.
-     * @param y    The relative y-coordinate being tested.
-     * @param z    The relative z-coordinate being tested.
-     * @return An array of 4 surrounding blocks, or else {@link Blocks#CAVE_AIR}.
-     */
-    private static BlockState[] getSurrounding(PrimerContext ctx, int x, int y, int z) {
-        // Todo: we used to check surrounding chunks, if loaded. Need to expose the current level.
-        return new BlockState[] {
-            x == 0 ? BLK_CAVE : ctx.get(x - 1, y, z),
-            x == 15 ? BLK_CAVE : ctx.get(x + 1, y, z),
-            z == 0 ? BLK_CAVE : ctx.get(x, y, z - 1),
-            z == 15 ? BLK_CAVE : ctx.get(x, y, z + 1)
-        };
-    }
-
-    /**
-     * Determines whether any of the blocks in this array are solid and thus viable candidates
-     * for pond placement.
-     *
-     * @param states An array of the 4 blocks immediately surrounding the current position.
+     * @param ctx The current early generation context.
+     * @param x   The relative x-coordinate being tested, not on the edge of the chunk.
+     * @param y   The relative y-coordinate being tested.
+     * @param z   The relative z-coordinate being tested, not on the edge of the chunk.
      * @return <code>true</code> if any one of these blocks is solid.
      */
-    private static boolean anySolid(final BlockState[] states) {
-        for (final BlockState state : states) {
-            if (state != null && state.getMaterial().isSolid()) {
-                return true;
-            }
-        }
-        return false;
+    private static boolean anySolid(PrimerContext ctx, int x, int y, int z) {
+        return ctx.get(x - 1, y, z).getMaterial().isSolid()
+            || ctx.get(x + 1, y, z).getMaterial().isSolid()
+            || ctx.get(x, y, z - 1).getMaterial().isSolid()
+            || ctx.get(x, y, z + 1).getMaterial().isSolid();
     }
 
     /**
-     * Determines whether any of the blocks in this array are air blocks and thus <b>not</b>
-     * viable candidates for pond placement.
+     * Determines whether any of the four blocks surrounding the current position horizontally
+     * are air blocks and thus <b>not</b> viable candidates for pond placement.
      *
-     * @param states An array of the 4 blocks immediately surrounding the current position.
+     * @param ctx The current early generation context.
+     * @param x   The relative x-coordinate being tested, not on the edge of the chunk.
+     * @param y   The relative y-coordinate being tested.
+     * @param z   The relative z-coordinate being tested, not on the edge of the chunk.
      * @return <code>true</code> if any one of these blocks is air.
      */
-    private static boolean anyAir(final BlockState[] states) {
-        for (final BlockState state : states) {
-            if (state != null && state.isAir()) {
-                return true;
-            }
-        }
-        return false;
+    private static boolean anyAir(PrimerContext ctx, int x, int y, int z) {
+        return ctx.get(x - 1, y, z).isAir()
+            || ctx.get(x + 1, y, z).isAir()
+            || ctx.get(x, y, z - 1).isAir()
+            || ctx.get(x, y, z + 1).isAir();
     }
 
     /**
@@ -216,6 +246,49 @@ public abstract class CaveCarver extends EarlyGenerator {
         return yO;
     }
 
+    /**
+     * Records that a block was carved so that no queued shell will be placed over it.
+     *
+     * @param x The relative x-coordinate which was carved.
+     * @param y The relative y-coordinate which was carved.
+     * @param z The relative z-coordinate which was carved.
+     */
+    protected void markCarved(final int x, final int y, final int z) {
+        if (this.shells != null) {
+            this.shells.get().carve(x, y, z);
+        }
+    }
+
+    /**
+     * Queues a single coordinate to be covered by the shell decorators once every feature in
+     * the current chunk has been carved. See {@link #placeShells}.
+     *
+     * @param x  The relative x-coordinate being tested.
+     * @param y  The relative y-coordinate being tested.
+     * @param z  The relative z-coordinate being tested.
+     * @param cY The center height for this shell to generate around.
+     */
+    protected void addShell(int x, int y, int z, int cY) {
+        if (this.shells != null) {
+            this.shells.get().add(x, y, z, cY);
+        }
+    }
+
+    /**
+     * Spawns blocks from the shell decorator settings at every queued position which was
+     * not carved afterward. This must be called after carving and before decorating.
+     *
+     * @param ctx  The current early generation context.
+     * @param rand A RNG used for <b>decoration purposes only</b>.
+     */
+    protected void placeShells(PrimerContext ctx, Random rand) {
+        if (this.shells != null) {
+            final ShellMask shells = this.shells.get();
+            shells.forEach((x, y, z, cY) -> this.placeShell(ctx, rand, x, y, z, cY));
+            shells.reset();
+        }
+    }
+
     /**
      * Spawns blocks from the shell decorator settings for a single coordinate.
      *
@@ -226,16 +299,15 @@ public abstract class CaveCarver extends EarlyGenerator {
      * @param z    The relative z-coordinate being tested.
      * @param cY   The center height for this shell to generate around.
      */
-    protected void generateShell(PrimerContext ctx, Random rand, int x, int y, int z, int cY) {
+    protected void placeShell(PrimerContext ctx, Random rand, int x, int y, int z, int cY) {
+        final BlockState candidate = ctx.get(x, y, z);
         for (final ShellConfig.Decorator shell : this.decorators.shell.decorators) {
-            if (shell.height.contains(cY)) {
-                final BlockState candidate = ctx.get(x, y, z);
-                if (shell.matches(candidate) && shell.testNoise(x, y, z, ctx.chunkX, ctx.chunkZ)) {
-                    for (final BlockState state : shell.states) {
-                        if (rand.nextFloat() <= shell.integrity) {
-                            ctx.set(x, y, z, state);
-                            return;
-                        }
+            if (shell.height.contains(cY) && shell.matches(candidate)
+                    && shell.testNoise(x, y, z, ctx.chunkX, ctx.chunkZ)) {
+                for (final BlockState state : shell.states) {
+                    if (rand.nextFloat() <= shell.integrity) {
+                        ctx.set(x, y, z, state);
+                        return;
                     }
                 }
             }
@@ -249,12 +321,13 @@ public abstract class CaveCarver extends EarlyGenerator {
      * @param positions A set of block positions which have been updated by the feature.
      * @param rand      A RNG used for <b>decoration purposes only</b>.
      */
-    protected void generateWall(PrimerContext ctx, PositionFlags positions, Random rand) {
+    protected void generateWall(PrimerContext ctx, PositionSet positions, Random rand) {
         positions.forEach((x, y, z) -> this.decorateBlock(ctx, rand, x, y, z));
     }
 
     /**
      * Conditionally replaces the current block with blocks from this generator's WallDecorators.
+     * Each direction is skipped entirely unless its height and block filters can pass.
      *
      * @param ctx  The current early generation context.
      * @param rand A RNG used for <b>decoration purposes only</b>.
@@ -266,29 +339,29 @@ public abstract class CaveCarver extends EarlyGenerator {
         if (!this.decorators.wallMap.containsAny) {
             return;
         }
-        if (decorateAll(ctx, this.decorators.wallMap.all, rand, x, y, z)) {
+        if (decorateAll(ctx, this.walls.all, rand, x, y, z)) {
             return;
         }
-        if (decorateSide(ctx, this.decorators.wallMap.side, rand, x, y, z)) {
+        if (decorateSide(ctx, this.walls.side, rand, x, y, z)) {
             return;
         }
-        if (y > 0 && decorate(ctx, this.decorators.wallMap.down, rand, x, y, z, x, y - 1, z)) {
+        if (y > 0 && decorate(ctx, this.walls.down, rand, x, y, z, x, y - 1, z)) {
             return;
         }
-        if (y < 255 && decorate(ctx, this.decorators.wallMap.up, rand, x, y, z, x, y + 1, z)) {
+        if (y < 255 && decorate(ctx, this.walls.up, rand, x, y, z, x, y + 1, z)) {
             return;
         }
-        if (x > 0 && decorate(ctx, this.decorators.wallMap.west, rand, x, y, z, x - 1, y, z)) {
+        if (x > 0 && decorate(ctx, this.walls.west, rand, x, y, z, x - 1, y, z)) {
             return;
         }
-        if (x < 15 && decorate(ctx, this.decorators.wallMap.east, rand, x, y, z, x + 1, y, z)) {
+        if (x < 15 && decorate(ctx, this.walls.east, rand, x, y, z, x + 1, y, z)) {
             return;
         }
-        if (z > 0 && decorate(ctx, this.decorators.wallMap.north, rand, x, y, z, x, y, z - 1)) {
+        if (z > 0 && decorate(ctx, this.walls.north, rand, x, y, z, x, y, z - 1)) {
             return;
         }
         if (z < 15) {
-            decorate(ctx, this.decorators.wallMap.south, rand, x, y, z, x, y, z + 1);
+            decorate(ctx, this.walls.south, rand, x, y, z, x, y, z + 1);
         }
     }
 
@@ -304,9 +377,13 @@ public abstract class CaveCarver extends EarlyGenerator {
      * @param z    The relative z-coordinate being tested.
      * @return     Whether the block at the current position hsa been updated.
      */
-    protected boolean decorateAll(PrimerContext ctx, List<WallDecoratorConfig> all, Random rand, int x, int y, int z) {
-        for (final WallDecoratorConfig decorator : all) {
-            if (decorator.canGenerate(rand, x, y, z, ctx.chunkX, ctx.chunkZ)) {
+    protected boolean decorateAll(PrimerContext ctx, WallDecoratorTable.Group all, Random rand, int x, int y, int z) {
+        if (!all.containsHeight(y) || !anyMatches(ctx, all.matchers, true, x, y, z)) {
+            return false;
+        }
+        for (final WallDecoratorConfig decorator : all.decorators) {
+            if (decorator.containsHeight(y) && anyMatches(ctx, decorator.matchers, true, x, y, z)
+                    && decorator.canGenerate(rand, x, y, z, ctx.chunkX, ctx.chunkZ)) {
                 if (y > 0 && checkPlaceWall(ctx, decorator, rand, x, y, z, x, y - 1, z)) {
                     return true;
                 }
@@ -342,9 +419,13 @@ public abstract class CaveCarver extends EarlyGenerator {
      * @param z    The relative z-coordinate being tested.
      * @return     Whether the block at the current position hsa been updated.
      */
-    private boolean decorateSide(PrimerContext ctx, List<WallDecoratorConfig> side, Random rand, int x, int y, int z) {
-        for (final WallDecoratorConfig decorator : side) {
-            if (decorator.canGenerate(rand, x, y, z, ctx.chunkX, ctx.chunkZ)) {
+    private boolean decorateSide(PrimerContext ctx, WallDecoratorTable.Group side, Random rand, int x, int y, int z) {
+        if (!side.containsHeight(y) || !anyMatches(ctx, side.matchers, false, x, y, z)) {
+            return false;
+        }
+        for (final WallDecoratorConfig decorator : side.decorators) {
+            if (decorator.containsHeight(y) && anyMatches(ctx, decorator.matchers, false, x, y, z)
+                    && decorator.canGenerate(rand, x, y, z, ctx.chunkX, ctx.chunkZ)) {
                 if (x > 0 && checkPlaceWall(ctx, decorator, rand, x, y, z, x - 1, y, z)) {
                     return true;
                 }
@@ -362,6 +443,27 @@ public abstract class CaveCarver extends EarlyGenerator {
         return false;
     }
 
+    /**
+     * Determines whether any block surrounding the current position is matched by a set of
+     * wall decorators. If not, none of these decorators can possibly be placed.
+     *
+     * @param ctx      The current early generation context.
+     * @param matchers The blocks which the decorators are able to spawn on.
+     * @param vertical Whether to include the blocks above and below this position.
+     * @param x        The relative x-coordinate being tested.
+     * @param y        The relative y-coordinate being tested.
+     * @param z        The relative z-coordinate being tested.
+     * @return <code>true</code> if any neighboring block is matched.
+     */
+    private static boolean anyMatches(PrimerContext ctx, Set<BlockState> matchers, boolean vertical, int x, int y, int z) {
+        return (vertical && y > 0 && matchers.contains(ctx.get(x, y - 1, z)))
+            || (vertical && y < 255 && matchers.contains(ctx.get(x, y + 1, z)))
+            || (x > 0 && matchers.contains(ctx.get(x - 1, y, z)))
+            || (x < 15 && matchers.contains(ctx.get(x + 1, y, z)))
+            || (z > 0 && matchers.contains(ctx.get(x, y, z - 1)))
+            || (z < 15 && matchers.contains(ctx.get(x, y, z + 1)));
+    }
+
     /**
      * Determines whether a wall decorator can spawn at the current coordinates. If so, spawns it.
      *
@@ -397,8 +499,11 @@ public abstract class CaveCarver extends EarlyGenerator {
      * @param zD         The z-coordinate of the current surface block.
      * @return Whether a block was placed at the current position.
      */
-    private boolean decorate(PrimerContext ctx, List<WallDecoratorConfig> decorators, Random rand, int x0, int y0, int z0, int xD, int yD, int zD) {
-        for (final WallDecoratorConfig decorator : decorators) {
+    private boolean decorate(PrimerContext ctx, WallDecoratorTable.Group decorators, Random rand, int x0, int y0, int z0, int xD, int yD, int zD) {
+        if (!decorators.containsHeight(y0) || !decorators.matchesBlock(ctx.get(xD, yD, zD))) {
+            return false;
+        }
+        for (final WallDecoratorConfig decorator : decorators.decorators) {
             final BlockState candidate = ctx.get(xD, yD, zD);
             if (decorator.canGenerate(rand, candidate, x0, y0, z0, ctx.chunkX, ctx.chunkZ)) {
                 if (placeWall(ctx, decorator, rand, x0, y0, z0, xD, yD, zD)) {
@@ -20,9 +20,13 @@ public class ClusterGenerator extends ListGenerator<ClusterConfig> {
     private final MultiValueMap<ConditionConfig, ClusterInfo> clusterMap = new MultiValueIdentityMap<>();
     private final RandomChunkSelector selector;
 
+    /** Whether any cluster can spawn in air, which prevents empty sections from being skipped. */
+    private final boolean spawnsInAir;
+
     public ClusterGenerator(List<ClusterConfig> cfg, final Random rand, final long seed) {
         super(cfg, c -> c.conditions, rand, seed);
         this.selector = new RandomChunkSelector(seed);
+        this.spawnsInAir = cfg.stream().anyMatch(c -> c.spawnInAir);
     }
 
     @Override
@@ -97,6 +101,7 @@ public class ClusterGenerator extends ListGenerator<ClusterConfig> {
             final ConditionConfig conditions = entry.getKey();
 
             for (int y : conditions.getColumn(aX, aZ)) {
+                if (!this.spawnsInAir && ctx.isEmptySection(y)) continue;
                 if (conditions.noise.getBoolean(aX, y, aZ)) {
                     spawnCluster(ctx, entry.getValue(), x, y, z, aX, aZ);
                 }
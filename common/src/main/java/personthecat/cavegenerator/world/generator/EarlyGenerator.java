@@ -1,12 +1,11 @@
 package personthecat.cavegenerator.world.generator;
 
-import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.levelgen.carver.WorldCarver;
+import personthecat.cavegenerator.model.ChunkBorder;
 import personthecat.cavegenerator.world.BiomeSearch;
+import personthecat.cavegenerator.world.DimensionIndex;
 import personthecat.cavegenerator.world.config.ConditionConfig;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -20,7 +19,9 @@ import java.util.Random;
  */
 public abstract class EarlyGenerator {
 
-    protected final List<BlockPos> invalidChunks = new ArrayList<>(BiomeSearch.size());
+    /** Generators are shared between worker threads, so each thread fills its own border. */
+    protected final ThreadLocal<ChunkBorder> invalidChunks =
+        ThreadLocal.withInitial(() -> new ChunkBorder(BiomeSearch.size()));
     protected final ConditionConfig conditions;
     protected final Random globalRand;
     protected final long seed;
@@ -33,40 +34,57 @@ public abstract class EarlyGenerator {
 
     /**
      * Generates this feature <em>after</em> checking to ensure that it can spawn in the
-     * current dimension and biomes.
+     * current biomes. Dimensions are checked ahead of time by the {@link DimensionIndex}.
      *
      * @param ctx A context containing world information and coordinates.
      */
     public void generate(final PrimerContext ctx) {
-        if (this.conditions.dimensions.test(ctx.primer)) {
-            if (this.conditions.hasBiomes || this.conditions.hasRegion) {
-                if (ctx.search.anyMatches(this.conditions.biomes)) {
-                    this.fillInvalidChunks(ctx.search, ctx.chunkX, ctx.chunkZ);
-                    this.generateChecked(ctx);
-                    this.invalidChunks.clear();
-                }
-            } else {
+        if (this.conditions.hasBiomes || this.conditions.hasRegion) {
+            if (ctx.search.anyMatches(this.conditions.biomes)) {
+                final ChunkBorder border = this.invalidChunks.get();
+                border.clear();
+                this.fillInvalidChunks(border, ctx.search, ctx.chunkX, ctx.chunkZ);
                 this.generateChecked(ctx);
+                border.clear();
             }
+        } else {
+            this.generateChecked(ctx);
         }
     }
 
+    public ConditionConfig getConditions() {
+        return this.conditions;
+    }
+
     /**
      * Checks the biome and noise conditions in each surrounding chunk for this generator.
      *
      * <p>Any chunks that do not pass will be added into the {@link #invalidChunks} context and
      * used to form a distance-based, cylindrical chunk border in the future.
      *
+     * @param border The current thread's border, which is always empty at this point.
      * @param search The lazily initialized biome search utility providing biome data.
      */
-    protected void fillInvalidChunks(final BiomeSearch search, final int x, final int z) {
+    protected void fillInvalidChunks(final ChunkBorder border, final BiomeSearch search, final int x, final int z) {
         for (final BiomeSearch.Data d : search.surrounding.get()) {
             if (!(this.conditions.biomes.test(d.biome) && this.conditions.region.getBoolean(d.centerX, d.centerZ))) {
-                this.invalidChunks.add(new BlockPos(d.centerX, 0, d.centerZ));
+                border.add(d.centerX, d.centerZ);
             }
         }
     }
 
+    /**
+     * Checks each invalid position inside of {@link #invalidChunks} to
+     * find whichever is closest.
+     *
+     * @param x The absolute x-coordinate.
+     * @param z The absolute z-coordinate.
+     * @return The raw distance to the nearest invalid biome or region noise.
+     */
+    protected double getNearestBorder(final int x, final int z) {
+        return this.invalidChunks.get().distance(x, z);
+    }
+
     /**
      * The primary function which much be implemented in order to make changes to the
      * world.
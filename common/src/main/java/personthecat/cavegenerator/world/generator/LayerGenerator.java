@@ -11,6 +11,10 @@ import static personthecat.cavegenerator.util.CommonBlocks.BLK_STONE;
 // Todo: this used to be optimized to avoid overlapping layers. Switch to ListGenerator.
 public class LayerGenerator extends EarlyGenerator {
 
+    private static final int UNKNOWN = 0;
+    private static final int PASSED = 1;
+    private static final int FAILED = 2;
+
     private final LayerConfig cfg;
 
     public LayerGenerator(final LayerConfig cfg, final Random rand, final long seed) {
@@ -26,9 +30,16 @@ public class LayerGenerator extends EarlyGenerator {
                 final int aZ = ctx.actualZ + z;
                 final Biome b = ctx.provider.getBiome(new BlockPos(aX, 0, aZ));
                 if (conditions.biomes.test(b) && conditions.region.getBoolean(aX, aZ)) {
+                    // Noise is only sampled once stone is found, at most once per column.
+                    int noise = UNKNOWN;
                     for (int y : conditions.getColumn(aX, aZ)) {
+                        // Empty sections cannot contain stone.
+                        if (ctx.isEmptySection(y)) continue;
                         if (BLK_STONE.equals(ctx.get(x, y, z))) {
-                            if (conditions.noise.getBoolean(x, z)) {
+                            if (noise == UNKNOWN) {
+                                noise = conditions.noise.getBoolean(x, z) ? PASSED : FAILED;
+                            }
+                            if (noise == PASSED) {
                                 ctx.set(x, y, z, cfg.state);
                             }
                         }
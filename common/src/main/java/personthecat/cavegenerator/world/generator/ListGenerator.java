@@ -26,6 +26,10 @@ public abstract class ListGenerator<T> {
         }
     }
 
+    public boolean isEmpty() {
+        return this.features.isEmpty();
+    }
+
     protected abstract void generateChecked(final PrimerContext ctx);
 
     protected void forEachFeature(final BiConsumer<T, ConditionConfig> fn) {
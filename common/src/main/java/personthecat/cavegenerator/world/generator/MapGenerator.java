@@ -1,15 +1,19 @@
 package personthecat.cavegenerator.world.generator;
 
-import net.minecraft.core.BlockPos;
 import net.minecraft.util.Mth;
 import personthecat.cavegenerator.config.Cfg;
 import personthecat.cavegenerator.model.PositionFlags;
 import personthecat.cavegenerator.model.SphereData;
+import personthecat.cavegenerator.model.VoxelSet;
 import personthecat.cavegenerator.world.config.CaveBlockConfig;
 import personthecat.cavegenerator.world.config.ConditionConfig;
 import personthecat.cavegenerator.world.config.DecoratorConfig;
 
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 import static personthecat.cavegenerator.util.CommonBlocks.BLK_WATER;
 
@@ -18,9 +22,34 @@ public abstract class MapGenerator extends CaveCarver {
     /** The vertical distance to the nearest water source block that can be ignored. */
     private static final int WATER_WIGGLE_ROOM = 7;
 
-    private final SphereData sphere = new SphereData();
+    /**
+     * The number of planned regions which may be held by each generator at once. Every
+     * worker thread is usually generating in a different region, so this must be well
+     * above the number of workers to avoid planning the same regions repeatedly.
+     */
+    private static final int MAX_REGIONS = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+
+    /** Generators are shared between worker threads, so each thread fills its own sphere. */
+    private final ThreadLocal<SphereData> sphere = ThreadLocal.withInitial(SphereData::new);
     private final boolean checkWater;
 
+    /**
+     * Planned regions by position, shared between every worker thread. Each region is
+     * planned once by the first thread to need it while any other threads wait for the
+     * result. Regions are evicted once complete or, when the cache is full, in LRU order.
+     * Evicted regions are simply planned again if needed, which produces the same spheres.
+     */
+    private final Map<Long, CompletableFuture<MapRegion>> regions =
+        new LinkedHashMap<Long, CompletableFuture<MapRegion>>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, CompletableFuture<MapRegion>> eldest) {
+                return this.size() > MAX_REGIONS;
+            }
+        };
+
+    /** The key used to store planned regions on the disk, if available. */
+    private volatile @Nullable String regionKey;
+
     public MapGenerator(ConditionConfig conditions, DecoratorConfig decorators, Random rand, long seed, boolean checkWater) {
         super(conditions, decorators, rand, seed);
         this.checkWater = checkWater;
@@ -33,46 +62,128 @@ public abstract class MapGenerator extends CaveCarver {
         final long xMask = ctx.localRand.nextLong();
         final long zMask = ctx.localRand.nextLong();
 
-        for (int destX = ctx.chunkX - range; destX <= ctx.chunkX + range; destX++) {
-            for (int destZ = ctx.chunkZ - range; destZ <= ctx.chunkZ + range; destZ++) {
-                long xHash = (long) destX * xMask;
-                long zHash = (long) destZ * zMask;
-                ctx.localRand.setSeed(xHash ^ zHash ^ this.seed);
-                this.mapGenerate(ctx, destX, destZ);
+        if (Cfg.planMapRegions()) {
+            this.getRegion(ctx, range).generate(ctx);
+            // Later generators expect the RNG to be left where the last origin left it.
+            final int lastX = ctx.chunkX + range;
+            final int lastZ = ctx.chunkZ + range;
+            ctx.localRand.setSeed((long) lastX * xMask ^ (long) lastZ * zMask ^ this.seed);
+            this.mapGenerate(SphereSink.DISCARD, ctx.localRand, lastX, lastZ);
+        } else {
+            final SphereSink sink = new SphereSink.ChunkSink(ctx);
+            for (int destX = ctx.chunkX - range; destX <= ctx.chunkX + range; destX++) {
+                for (int destZ = ctx.chunkZ - range; destZ <= ctx.chunkZ + range; destZ++) {
+                    long xHash = (long) destX * xMask;
+                    long zHash = (long) destZ * zMask;
+                    ctx.localRand.setSeed(xHash ^ zHash ^ this.seed);
+                    this.mapGenerate(sink, ctx.localRand, destX, destZ);
+                }
             }
         }
     }
 
+    /**
+     * Gets the planned region containing the current chunk, planning it if necessary.
+     *
+     * @param ctx   The current early generation context.
+     * @param range The map range, in chunks.
+     * @return Every sphere which may generate in the region containing this chunk.
+     */
+    private MapRegion getRegion(final PrimerContext ctx, final int range) {
+        final int regionX = ctx.chunkX >> MapRegion.SHIFT;
+        final int regionZ = ctx.chunkZ >> MapRegion.SHIFT;
+        final long key = (long) regionX << 32 | (regionZ & 0xFFFFFFFFL);
+        while (true) {
+            final CompletableFuture<MapRegion> planned = this.getOrPlanRegion(key, regionX, regionZ, range);
+            final MapRegion region = planned.join();
+            if (region.range != range) {
+                // The config was reloaded since this region was planned.
+                this.removeRegion(key, planned);
+                continue;
+            }
+            if (region.markGenerated(ctx.chunkX, ctx.chunkZ)) {
+                this.removeRegion(key, planned);
+            }
+            return region;
+        }
+    }
+
+    private CompletableFuture<MapRegion> getOrPlanRegion(final long key, final int regionX, final int regionZ, final int range) {
+        final CompletableFuture<MapRegion> created;
+        synchronized (this.regions) {
+            final CompletableFuture<MapRegion> existing = this.regions.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            created = new CompletableFuture<>();
+            this.regions.put(key, created);
+        }
+        try {
+            created.complete(this.loadRegion(regionX, regionZ, range));
+        } catch (final RuntimeException | Error e) {
+            this.removeRegion(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+        return created;
+    }
+
+    private void removeRegion(final long key, final CompletableFuture<MapRegion> planned) {
+        synchronized (this.regions) {
+            this.regions.remove(key, planned);
+        }
+    }
+
+    private MapRegion loadRegion(final int regionX, final int regionZ, final int range) {
+        final String key = this.regionKey;
+        if (key == null || !Cfg.storeMapRegions() || !RegionStore.isOpen()) {
+            return MapRegion.plan(this, regionX, regionZ, range);
+        }
+        MapRegion region = RegionStore.read(this, key, regionX, regionZ, range);
+        if (region == null) {
+            region = MapRegion.plan(this, regionX, regionZ, range);
+            RegionStore.write(this, key, region);
+        }
+        return region;
+    }
+
+    /**
+     * Assigns the key used to store this generator's planned regions on the disk. Any
+     * regions stored with a different key will not be reused.
+     *
+     * @param key A key which is unique to this generator and its compiled settings.
+     */
+    public void setRegionKey(final String key) {
+        this.regionKey = key;
+    }
+
+    /**
+     * Gets the generator used by any branches of this generator's paths, if applicable.
+     * Branches are planned along with the paths they belong to.
+     */
+    protected @Nullable MapGenerator getBranches() {
+        return null;
+    }
+
     /**
      * Runs the generator in either the current chunk <b>or a foreign chunk</b> to determine
      * if its features will touch this chunk. Unlike its counterpart used by most other
      * generators, {@link #generateChecked}
      *
-     * @param ctx   The current early generation context.
+     * @param sink  Receives every sphere which may touch the chunk being generated.
+     * @param rand  The RNG seeded for this origin, which must be consumed in a stable order.
      * @param destX The x-coordinate of the chunk being evaluated (but not generated)
      * @param destZ The z-coordinate of the chunk being evaluated (but not generated)
      */
-    protected abstract void mapGenerate(final PrimerContext ctx, final int destX, final int destZ);
+    protected abstract void mapGenerate(final SphereSink sink, final Random rand, final int destX, final int destZ);
 
     /**
-     * Checks each invalid position inside of {@link #invalidChunks} to
-     * find whichever is closest.
+     * Restores any per-path state needed by {@link #fillSphere} when a planned sphere is
+     * generated outside of the path that created it.
      *
-     * @param x The absolute x-coordinate.
-     * @param z The absolute z-coordinate.
-     * @return The raw distance to the nearest invalid biome or region noise.
+     * @param mutations The mutations recorded by {@link SphereSink#beginPath}, if any.
      */
-    protected double getNearestBorder(final int x, final int z) {
-        double shortestDistance = Double.MAX_VALUE;
-
-        for (final BlockPos invalid : this.invalidChunks) {
-            final double sum = Math.pow(x - invalid.getX(), 2) + Math.pow(z - invalid.getZ(), 2);
-            final double distance = Math.sqrt(sum);
-
-            shortestDistance = Math.min(distance, shortestDistance);
-        }
-        return shortestDistance;
-    }
+    protected void setMutations(final float[] mutations) {}
 
     /**
      * Generates the applicable features for a single sphere in the current chunk.
@@ -96,20 +207,21 @@ public abstract class MapGenerator extends CaveCarver {
         final int miZ = limitXZ(Mth.floor(z - roXZ) - ctx.actualZ - 1);
         final int maZ = limitXZ(Mth.floor(z + roXZ) - ctx.actualZ + 1);
 
-        this.sphere.reset();
-        this.sphere.grow(maX - miX, maY - miY, maZ - miZ);
+        final SphereData sphere = this.sphere.get();
+        sphere.reset();
+        sphere.grow(maX - miX, maY - miY, maZ - miZ);
 
         if (roXZ - rXZ != 0 && rand.nextInt(decorators.shell.sphereResolution) == 0) {
-            this.fillDouble(ctx, this.sphere, x, y, z, rXZ, rY, roXZ, roY, miX, maX, miY, maY, miZ, maZ);
+            this.fillDouble(ctx, sphere, x, y, z, rXZ, rY, roXZ, roY, miX, maX, miY, maY, miZ, maZ);
         } else {
-            this.fillSphere(ctx, this.sphere, x, y, z, rXZ, rY, miX, maX, miY, maY, miZ, maZ);
+            this.fillSphere(ctx, sphere, x, y, z, rXZ, rY, miX, maX, miY, maY, miZ, maZ);
         }
 
         // If we need to test this section for water -> is there water?
-        if (!(this.shouldTestForWater(miY, maY) && this.testForWater(ctx, this.sphere.inner))) {
-            this.generateShell(ctx, rand, this.sphere.shell, (int) y);
-            this.replaceSphere(ctx, rand, this.sphere.inner);
-            this.decorateAll(ctx, this.sphere.inner, rand);
+        if (!(this.shouldTestForWater(miY, maY) && this.testForWater(ctx, sphere.inner, miY, maY))) {
+            this.generateShell(ctx, rand, sphere.shell, (int) y);
+            this.replaceSphere(ctx, rand, sphere.inner);
+            this.decorateAll(ctx, sphere.inner, rand);
         }
     }
 
@@ -216,16 +328,21 @@ public abstract class MapGenerator extends CaveCarver {
 
     /**
      * Checks each block in a given sphere to see if water exists at this
-     * point.
-     *
-     * Todo: it may be possible to discover this information using heightmaps.
+     * point. Blocks are only checked in sections whose palettes contain water.
      *
      * @param ctx    The current early generation context.
      * @param sphere A set of each relative coordinate being generated.
+     * @param miY    The lowest y-coordinate of the sphere.
+     * @param maY    The highest y-coordinate of the sphere.
      * @return <code>true</code>, if any block is regular water.
      */
-    protected boolean testForWater(final PrimerContext ctx, final PositionFlags sphere) {
-        return sphere.anyMatches((x, y, z) -> BLK_WATER.equals(ctx.get(x, y, z)));
+    protected boolean testForWater(final PrimerContext ctx, final PositionFlags sphere, final int miY, final int maY) {
+        final int sections = ctx.getSectionsContaining(BLK_WATER, miY, maY);
+        if (sections == 0) {
+            return false;
+        }
+        return sphere.anyMatches((x, y, z) ->
+            (sections & (1 << (y >> 4))) != 0 && BLK_WATER.equals(ctx.get(x, y, z)));
     }
 
     /**
@@ -236,10 +353,18 @@ public abstract class MapGenerator extends CaveCarver {
      * @param sphere A set of each relative coordinate being generated.
      * @param cY     The center height which this shell is to generate around.
      */
-    protected void generateShell(PrimerContext ctx, Random rand, PositionFlags sphere, int cY) {
-        sphere.forEach((x, y, z) -> this.generateShell(ctx, rand, x, y, z, cY));
+    protected void generateShell(PrimerContext ctx, Random rand, VoxelSet sphere, int cY) {
+        if (this.hasShell()) {
+            sphere.forEach((x, y, z) -> this.placeShell(ctx, rand, x, y, z, cY));
+        }
     }
 
+    /**
+     * Shells are placed immediately for each sphere, so carved blocks need not be tracked.
+     */
+    @Override
+    protected void markCarved(final int x, final int y, final int z) {}
+
     /**
      * Replaces each block in the current sphere, if applicable.
      *
@@ -0,0 +1,356 @@
+package personthecat.cavegenerator.world.generator;
+
+import personthecat.cavegenerator.model.TunnelPathInfo;
+import personthecat.cavegenerator.util.XoRoShiRo;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Every sphere traced by a single {@link MapGenerator} which may generate in a region
+ * of 32x32 chunks. Each origin in range of the region is traced exactly once, after
+ * which every sphere is sorted into the chunks it touches. Chunks in this region then
+ * only need to generate the spheres in their own bucket.
+ *
+ * <p>
+ *  Tunnels normally stop once they have travelled too far away from the chunk being
+ *  generated, which means that the same path may end at different points in different
+ *  chunks. To reproduce this exactly, every point at which a path is tested is recorded
+ *  and each path is replayed against the chunk being generated. Branches only exist if
+ *  their parent reached them, and spheres sharing an RNG are generated in their original
+ *  order. As a result, every chunk is identical to one which was generated directly.
+ * </p>
+ */
+final class MapRegion extends SphereSink {
+
+    static final int SHIFT = 5;
+    static final int SIZE = 1 << SHIFT;
+
+    static final int CHUNKS = SIZE * SIZE;
+
+    static final byte SEGMENT = 0;
+    static final byte SHARED = 1;
+    static final byte ROOM = 2;
+
+    /** Path states for the chunk being generated on each thread. */
+    private static final ThreadLocal<int[]> STATES = ThreadLocal.withInitial(() -> new int[256]);
+    private static final int UNKNOWN = -2;
+    private static final int INVALID = -1;
+
+    final int regionX;
+    final int regionZ;
+    final int range;
+    private final int minX;
+    private final int minZ;
+
+    final List<Path> paths = new ArrayList<>();
+    private final List<Sphere> spheres = new ArrayList<>();
+    final Sphere[][] buckets = new Sphere[CHUNKS][];
+    final int[] sizes = new int[CHUNKS];
+    private final BitSet generated = new BitSet(CHUNKS);
+
+    /** The path being traced, while planning. */
+    private @Nullable Path current;
+    private int originX;
+    private int originZ;
+
+    MapRegion(final int regionX, final int regionZ, final int range) {
+        this.regionX = regionX;
+        this.regionZ = regionZ;
+        this.range = range;
+        this.minX = regionX << SHIFT;
+        this.minZ = regionZ << SHIFT;
+    }
+
+    /**
+     * Traces every origin in range of the given region exactly once.
+     *
+     * @param generator The generator which owns this region.
+     * @param regionX   The x-coordinate of the region, in regions.
+     * @param regionZ   The z-coordinate of the region, in regions.
+     * @param range     The map range, in chunks.
+     * @return A region containing every sphere which may generate inside of it.
+     */
+    static MapRegion plan(final MapGenerator generator, final int regionX, final int regionZ, final int range) {
+        final MapRegion region = new MapRegion(regionX, regionZ, range);
+        final XoRoShiRo rand = new XoRoShiRo(generator.seed);
+        final long xMask = rand.nextLong();
+        final long zMask = rand.nextLong();
+
+        for (int destX = region.minX - range; destX < region.minX + SIZE + range; destX++) {
+            for (int destZ = region.minZ - range; destZ < region.minZ + SIZE + range; destZ++) {
+                long xHash = (long) destX * xMask;
+                long zHash = (long) destZ * zMask;
+                rand.setSeed(xHash ^ zHash ^ generator.seed);
+                region.originX = destX;
+                region.originZ = destZ;
+                region.beginPath(null);
+                generator.mapGenerate(region, rand, destX, destZ);
+                region.endPath();
+            }
+        }
+        region.spheres.forEach(region::sort);
+        region.spheres.clear();
+        return region;
+    }
+
+    /**
+     * Generates every sphere in the current chunk.
+     *
+     * @param ctx The current early generation context.
+     */
+    void generate(final PrimerContext ctx) {
+        final int i = (ctx.chunkX - this.minX) << SHIFT | (ctx.chunkZ - this.minZ);
+        final Sphere[] bucket = this.buckets[i];
+        if (bucket == null) {
+            return;
+        }
+        final int[] states = this.getStates();
+        Path shared = null;
+        XoRoShiRo dec = null;
+
+        for (int j = 0; j < this.sizes[i]; j++) {
+            final Sphere s = bucket[j];
+            final int state = this.resolve(states, s.path, ctx.centerX, ctx.centerZ);
+            if (state <= s.check) {
+                continue;
+            }
+            if (s.kind == ROOM) {
+                final XoRoShiRo rand = new XoRoShiRo(0);
+                rand.setState(s.state);
+                s.generator.generateSphere(ctx, rand, s.x, s.y, s.z, s.rXZ, s.rY, s.roXZ, s.roY);
+                continue;
+            }
+            if (s.generator.getNearestBorder((int) s.x, (int) s.z) < s.roXZ + 9) {
+                continue;
+            }
+            if (s.kind == SHARED) {
+                if (s.path != shared) {
+                    shared = s.path;
+                    dec = new XoRoShiRo(0);
+                    dec.setState(s.path.state);
+                }
+                s.generator.setMutations(s.path.mutations);
+                s.generator.generateSphere(ctx, dec, s.x, s.y, s.z, s.rXZ, s.rY, s.roXZ, s.roY);
+            } else {
+                s.generator.generateSphere(ctx, new XoRoShiRo(s.seed), s.x, s.y, s.z, s.rXZ, s.rY, s.roXZ, s.roY);
+            }
+        }
+    }
+
+    /**
+     * Records that a chunk in this region has been generated.
+     *
+     * @param chunkX The x-coordinate of the chunk.
+     * @param chunkZ The z-coordinate of the chunk.
+     * @return <code>true</code>, if every chunk in this region has been generated.
+     */
+    synchronized boolean markGenerated(final int chunkX, final int chunkZ) {
+        this.generated.set((chunkX - this.minX) << SHIFT | (chunkZ - this.minZ));
+        return this.generated.cardinality() == CHUNKS;
+    }
+
+    private int[] getStates() {
+        int[] states = STATES.get();
+        if (states.length < this.paths.size()) {
+            states = new int[this.paths.size()];
+            STATES.set(states);
+        }
+        Arrays.fill(states, 0, this.paths.size(), UNKNOWN);
+        return states;
+    }
+
+    /**
+     * Determines how far a path generates in the current chunk.
+     *
+     * @return The index of the first check which stops this path, the number of checks if
+     *         it is never stopped, or else {@link #INVALID} if the path never starts.
+     */
+    private int resolve(final int[] states, final Path path, final int centerX, final int centerZ) {
+        final int state = states[path.id];
+        if (state != UNKNOWN) {
+            return state;
+        }
+        final int resolved;
+        if (path.parent != null && this.resolve(states, path.parent, centerX, centerZ) < path.branch) {
+            resolved = INVALID;
+        } else {
+            resolved = path.getFirstStop(centerX, centerZ);
+        }
+        states[path.id] = resolved;
+        return resolved;
+    }
+
+    /** Adds a sphere to every chunk in this region which would have generated it. */
+    private void sort(final Sphere s) {
+        final double d = s.roXZ * 2.0;
+        final int minX = Math.max(Math.max(this.minX, s.originX - this.range), (int) Math.floor((s.x - 24.0 - d) / 16.0) - 1);
+        final int maxX = Math.min(Math.min(this.minX + SIZE - 1, s.originX + this.range), (int) Math.floor((s.x + 8.0 + d) / 16.0) + 1);
+        final int minZ = Math.max(Math.max(this.minZ, s.originZ - this.range), (int) Math.floor((s.z - 24.0 - d) / 16.0) - 1);
+        final int maxZ = Math.min(Math.min(this.minZ + SIZE - 1, s.originZ + this.range), (int) Math.floor((s.z + 8.0 + d) / 16.0) + 1);
+
+        for (int cX = minX; cX <= maxX; cX++) {
+            for (int cZ = minZ; cZ <= maxZ; cZ++) {
+                // Rooms cannot generate outside of this area, so they need not be exact.
+                if (s.kind == ROOM || TunnelPathInfo.touchesChunk(s.x, s.z, (cX << 4) + 8, (cZ << 4) + 8, d)) {
+                    this.add((cX - this.minX) << SHIFT | (cZ - this.minZ), s);
+                }
+            }
+        }
+    }
+
+    void add(final int i, final Sphere s) {
+        Sphere[] bucket = this.buckets[i];
+        if (bucket == null) {
+            bucket = this.buckets[i] = new Sphere[16];
+        } else if (this.sizes[i] == bucket.length) {
+            bucket = this.buckets[i] = Arrays.copyOf(bucket, bucket.length * 2);
+        }
+        bucket[this.sizes[i]++] = s;
+    }
+
+    @Override
+    void beginPath(final @Nullable float[] mutations) {
+        final Path parent = this.current;
+        this.current = new Path(this.paths.size(), parent, parent != null ? parent.checks : 0, mutations);
+        this.paths.add(this.current);
+    }
+
+    @Override
+    void endPath() {
+        this.current.trim();
+        this.current = this.current.parent;
+    }
+
+    @Override
+    boolean travelledTooFar(final TunnelPathInfo path, final int currentPos, final int distance) {
+        this.current.addCheck(path.getX(), path.getZ(), path.getScale(), distance - currentPos);
+        return false;
+    }
+
+    @Override
+    void addSegment(MapGenerator g, int seed, double x, double y, double z, double rXZ, double rY, double roXZ, double roY) {
+        this.spheres.add(new Sphere(g, this, SEGMENT, seed, null, x, y, z, rXZ, rY, roXZ, roY));
+    }
+
+    @Override
+    void addSegment(MapGenerator g, XoRoShiRo rand, double x, double y, double z, double rXZ, double rY, double roXZ, double roY) {
+        // The RNG is never used while planning, so its state is the same for every segment.
+        if (this.current.state == null) {
+            this.current.state = rand.getState();
+        }
+        this.spheres.add(new Sphere(g, this, SHARED, 0, null, x, y, z, rXZ, rY, roXZ, roY));
+    }
+
+    @Override
+    void addRoom(MapGenerator g, XoRoShiRo rand, double x, double y, double z, double rXZ, double rY, double roXZ, double roY) {
+        this.spheres.add(new Sphere(g, this, ROOM, 0, rand.getState(), x, y, z, rXZ, rY, roXZ, roY));
+    }
+
+    @Override
+    int getChunkX() {
+        return this.originX;
+    }
+
+    @Override
+    int getChunkZ() {
+        return this.originZ;
+    }
+
+    /** A single tunnel or ravine, along with every point at which it may have stopped. */
+    static class Path {
+        final int id;
+        final @Nullable Path parent;
+        final int branch;
+        final @Nullable float[] mutations;
+        @Nullable long[] state;
+        float[] xs = new float[0];
+        float[] zs = new float[0];
+        float[] scales = new float[0];
+        int[] remaining = new int[0];
+        int checks;
+
+        Path(final int id, final @Nullable Path parent, final int branch, final @Nullable float[] mutations) {
+            this.id = id;
+            this.parent = parent;
+            this.branch = branch;
+            this.mutations = mutations;
+        }
+
+        void addCheck(final float x, final float z, final float scale, final int remaining) {
+            if (this.checks == this.xs.length) {
+                final int capacity = Math.max(16, this.checks * 2);
+                this.xs = Arrays.copyOf(this.xs, capacity);
+                this.zs = Arrays.copyOf(this.zs, capacity);
+                this.scales = Arrays.copyOf(this.scales, capacity);
+                this.remaining = Arrays.copyOf(this.remaining, capacity);
+            }
+            this.xs[this.checks] = x;
+            this.zs[this.checks] = z;
+            this.scales[this.checks] = scale;
+            this.remaining[this.checks] = remaining;
+            this.checks++;
+        }
+
+        void trim() {
+            if (this.checks < this.xs.length) {
+                this.xs = Arrays.copyOf(this.xs, this.checks);
+                this.zs = Arrays.copyOf(this.zs, this.checks);
+                this.scales = Arrays.copyOf(this.scales, this.checks);
+                this.remaining = Arrays.copyOf(this.remaining, this.checks);
+            }
+        }
+
+        int getFirstStop(final int centerX, final int centerZ) {
+            for (int i = 0; i < this.checks; i++) {
+                if (TunnelPathInfo.travelledTooFar(this.xs[i], this.zs[i], this.scales[i], centerX, centerZ, this.remaining[i])) {
+                    return i;
+                }
+            }
+            return this.checks;
+        }
+    }
+
+    /** A sphere recorded while planning, along with the data needed to generate it. */
+    static class Sphere {
+        final MapGenerator generator;
+        final Path path;
+        /** The index of the last check on this path before the sphere was traced. */
+        final int check;
+        final int originX;
+        final int originZ;
+        final byte kind;
+        final int seed;
+        final @Nullable long[] state;
+        final double x, y, z;
+        final double rXZ, rY, roXZ, roY;
+
+        Sphere(MapGenerator generator, MapRegion region, byte kind, int seed, @Nullable long[] state,
+                double x, double y, double z, double rXZ, double rY, double roXZ, double roY) {
+            this(generator, region.current, region.current.checks - 1, region.originX, region.originZ,
+                kind, seed, state, x, y, z, rXZ, rY, roXZ, roY);
+        }
+
+        Sphere(MapGenerator generator, Path path, int check, int originX, int originZ, byte kind, int seed,
+                @Nullable long[] state, double x, double y, double z, double rXZ, double rY, double roXZ, double roY) {
+            this.generator = generator;
+            this.path = path;
+            this.check = check;
+            this.originX = originX;
+            this.originZ = originZ;
+            this.kind = kind;
+            this.seed = seed;
+            this.state = state;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.rXZ = rXZ;
+            this.rY = rY;
+            this.roXZ = roXZ;
+            this.roY = roY;
+        }
+    }
+}
@@ -96,7 +96,6 @@ public final class PrimerContext {
      * @return The block state located at this position.
      */
     public BlockState getUnchecked(final int x, final int y, final int z) {
-        // Todo: investigate pre-calculating how many sections are needed.
         final LevelChunkSection section = this.primer.getSections()[y >> 4];
         if (LevelChunkSection.isEmpty(section)) {
             return BLK_AIR;
@@ -104,6 +103,48 @@ public final class PrimerContext {
         return section.getBlockState(x & 15, y & 15, z & 15);
     }
 
+    /**
+     * Determines whether the section containing the given y-coordinate has no blocks. Every
+     * block in an empty section is read as air, which means that any generator unable to
+     * replace air may skip the entire section.
+     *
+     * @param y The y-coordinate of any block in the section.
+     * @return <code>true</code>, if the section is inside the world and empty.
+     */
+    public boolean isEmptySection(final int y) {
+        if (Level.isOutsideBuildHeight(y)) {
+            return false;
+        }
+        return LevelChunkSection.isEmpty(this.primer.getSections()[y >> 4]);
+    }
+
+    /**
+     * Determines which sections in the given range may contain a block, according to their
+     * palettes. A section may report a block which it no longer contains, but will never
+     * omit a block which it does contain.
+     *
+     * @param state The block being searched for.
+     * @param minY  The lowest y-coordinate in the range, inclusive.
+     * @param maxY  The highest y-coordinate in the range, inclusive.
+     * @return A mask of the index of every section which may contain the block.
+     */
+    public int getSectionsContaining(final BlockState state, final int minY, final int maxY) {
+        final LevelChunkSection[] sections = this.primer.getSections();
+        final int min = Math.max(0, minY >> 4);
+        final int max = Math.min(15, maxY >> 4);
+        int mask = 0;
+        for (int i = min; i <= max; i++) {
+            final LevelChunkSection section = sections[i];
+            if (LevelChunkSection.isEmpty(section)) {
+                continue;
+            }
+            if (section.maybeHas(s -> s == state)) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
     /**
      * Reimplementation of {@link ProtoChunk#setBlockState} which avoids the unnecessary allocation
      * of additional {@link BlockPos} containers.
@@ -151,6 +192,17 @@ public final class PrimerContext {
         return original;
     }
 
+    /**
+     * Updates every heightmap in the chunk when placing blocks, rather than only those which
+     * are used during world generation. This is required when generating after the feature
+     * heightmaps have already been primed, or else features placed later would still see
+     * any blocks which were carved out of the surface.
+     */
+    public void trackAllHeightmaps() {
+        this.heightmapsAfter.clear();
+        this.heightmapsAfter.addAll(this.heightmaps.values());
+    }
+
     /**
      * Experimental method responsible for initializing the heightmaps that will be used
      * during the current generation stage. This allows us to reduce the number of redundant
@@ -7,33 +7,65 @@ import personthecat.cavegenerator.util.XoRoShiRo;
 import personthecat.cavegenerator.world.config.RavineConfig;
 import personthecat.fastnoise.FastNoise;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
 
 public class RavineGenerator extends MapGenerator {
 
-    /** From vanilla: avoids unnecessary allocations. */
-    private final float[] mut = new float[256];
+    /** The number of mutation tables which may be held by each generator at once. */
+    private static final int MAX_CACHED_MUTATIONS = 256;
+
+    /** The number of horizontal scale mutations in each table, one per y-level. */
+    private static final int MUTATION_COUNT = 256;
+
+    /**
+     * Vanilla mutation tables by ravine seed, evicted in LRU order. Each ravine is
+     * replayed from every chunk it may touch, so each table is typically reused
+     * several times in quick succession.
+     */
+    private final Map<Long, Mutations> mutationCache =
+        new LinkedHashMap<Long, Mutations>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, Mutations> eldest) {
+                return this.size() > MAX_CACHED_MUTATIONS;
+            }
+        };
+
+    /** The table in use by the ravine being generated on the current thread. */
+    private final ThreadLocal<float[]> mut = new ThreadLocal<>();
+
     private final RavineConfig cfg;
     private final FastNoise wallNoise;
     private final double cutoff;
 
+    /** Noise mutations do not depend on the ravine, so they are only generated once. */
+    private final float[] noiseMutations;
+
     public RavineGenerator(final RavineConfig cfg, final Random rand, final long seed) {
         super(cfg.conditions, cfg.decorators, rand, seed, cfg.checkWater);
         this.cfg = cfg;
         this.wallNoise = cfg.walls;
         this.cutoff = 1.0 + cfg.cutoffStrength;
+        this.noiseMutations = cfg.useWallNoise ? this.getMutationsWithNoise() : null;
     }
 
     @Override
-    protected void mapGenerate(final PrimerContext ctx, final int destX, final int destZ) {
-        if (ctx.localRand.nextInt(cfg.chance) == 0) {
-            this.startRavine(ctx, ctx.localRand.nextLong(), destX, destZ);
+    protected void mapGenerate(final SphereSink sink, final Random rand, final int destX, final int destZ) {
+        if (rand.nextInt(cfg.chance) == 0) {
+            this.startRavine(sink, rand.nextLong(), destX, destZ);
         }
     }
 
+    @Override
+    protected void setMutations(final float[] mutations) {
+        this.mut.set(mutations);
+    }
+
     @Override
     protected void fillSphere(PrimerContext ctx, SphereData sphere, double cX, double cY, double cZ,
                               double rXZ, double rY, int miX, int maX, int miY, int maY, int miZ, int maZ) {
+        final float[] mut = this.mut.get();
         for (int x = miX; x < maX; x++) {
             final double distX = ((x + ctx.actualX) + 0.5 - cX) / rXZ;
             final double distX2 = distX * distX;
@@ -64,6 +96,7 @@ public class RavineGenerator extends MapGenerator {
         final int d = (int) (roY - rY);
         final int miOY = Math.max(1, miY - d);
         final int maOY = Math.min(248, maY + d);
+        final float[] mut = this.mut.get();
 
         for (int x = miX; x < maX; x++) {
             final double distX = ((x + ctx.actualX) + 0.5 - cX);
@@ -76,8 +109,8 @@ public class RavineGenerator extends MapGenerator {
                     continue;
                 }
                 final double sumRXZ = distX2 / rXZ2 + distZ2 / rXZ2;
-                this.coverOuter(sphere, sumRoXZ, roY2, x, z, cY, miOY, miY);
-                this.coverOuter(sphere, sumRoXZ, roY2, x, z, cY, maY, maOY);
+                this.coverOuter(sphere, mut, sumRoXZ, roY2, x, z, cY, miOY, miY);
+                this.coverOuter(sphere, mut, sumRoXZ, roY2, x, z, cY, maY, maOY);
                 for (int y = maY; y > miY; y--) {
                     final double distY = ((y - 1) + 0.5 - cY);
                     final double distY2 = distY * distY;
@@ -91,7 +124,7 @@ public class RavineGenerator extends MapGenerator {
         }
     }
 
-    private void coverOuter(SphereData sphere, double sumRoXZ, double roY2, int x, int z, double cY, int min, int max) {
+    private void coverOuter(SphereData sphere, float[] mut, double sumRoXZ, double roY2, int x, int z, double cY, int min, int max) {
         if (this.cutoff > 1.0) {
             for (int y = max; y > min; y--) {
                 final double distY = ((y - 1) + 0.5 - cY);
@@ -104,7 +137,7 @@ public class RavineGenerator extends MapGenerator {
     }
 
     /** Starts a ravine between the input chunk coordinates. */
-    private void startRavine(final PrimerContext ctx, final long seed, final int destX, final int destZ) {
+    private void startRavine(final SphereSink sink, final long seed, final int destX, final int destZ) {
         final Random rand = new XoRoShiRo(seed);
         final int distance = cfg.distance;
         final TunnelPathInfo path = new TunnelPathInfo(cfg, rand, destX, destZ);
@@ -112,25 +145,27 @@ public class RavineGenerator extends MapGenerator {
         // Todo: verify that we need to check this outside of the current chunk.
         if (this.conditions.getColumn((int) path.getX(), (int) path.getZ()).contains((int) path.getY())) {
             if (this.conditions.noise.getBoolean(path.getX(), path.getY(), path.getZ())) {
-                this.addRavine(ctx, rand.nextLong(), path, distance);
+                this.addRavine(sink, rand.nextLong(), path, distance);
             }
         }
     }
 
     /**
      * Variant of addTunnel() and {~~@link net.minecraft.world.gen.MapGenRavine#addTunnel}
-     * which randomly alters the horizontal radius based on `mut`, a buffer of random
-     * values between 1-4, stored above. The difference in scale typically observed in
+     * which randomly alters the horizontal radius based on `mut`, a table of random
+     * values between 1-4, cached by seed. The difference in scale typically observed in
      * ravines is the result of arguments input to this function.
      */
-    private void addRavine(PrimerContext ctx, long seed, TunnelPathInfo path, int distance) {
+    private void addRavine(SphereSink sink, long seed, TunnelPathInfo path, int distance) {
         // Master RNG for this tunnel.
-        final Random mast = new XoRoShiRo(seed);
+        final XoRoShiRo mast = new XoRoShiRo(seed);
         // Avoid issues with inconsistent Random calls.
-        final Random dec = new XoRoShiRo(seed);
+        final XoRoShiRo dec = new XoRoShiRo(seed);
         distance = this.getDistance(mast, distance);
         // Unique wall mutations for this chasm.
-        this.fillMutations(mast);
+        final float[] mutations = this.getMutations(mast, seed);
+        this.mut.set(mutations);
+        sink.beginPath(mutations);
 
         for (int currentPos = 0; currentPos < distance; currentPos++) {
             // Determine the radius by `scale`.
@@ -146,46 +181,74 @@ public class RavineGenerator extends MapGenerator {
                 continue;
             }
             // Make sure we haven't travelled too far?
-            if (path.travelledTooFar(ctx, currentPos, distance)) {
-                return;
-            }
-            if (!path.touchesChunk(ctx, roXZ * 2.0)) {
-                continue;
-            }
-            if (getNearestBorder((int) path.getX(), (int) path.getZ()) < roXZ + 9) {
-                continue;
+            if (sink.travelledTooFar(path, currentPos, distance)) {
+                break;
             }
             if (!this.conditions.height.contains((int) path.getY())) {
                 continue;
             }
-            this.generateSphere(ctx, dec, path.getX(), path.getY(), path.getZ(), rXZ, rY, roXZ, roY);
+            sink.addSegment(this, dec, path.getX(), path.getY(), path.getZ(), rXZ, rY, roXZ, roY);
         }
+        sink.endPath();
     }
 
-    /** Used to produce the variations in horizontal scale seen in ravines. */
-    private void fillMutations(Random rand) {
-        if (this.cfg.useWallNoise) {
-            this.fillMutationsWithNoise();
-        } else {
-            this.fillMutationsVanilla(rand);
+    /**
+     * Used to produce the variations in horizontal scale seen in ravines. The vanilla
+     * tables are cached along with the state of the RNG after they were generated, which
+     * allows the remainder of the ravine to be generated exactly as before.
+     *
+     * @param rand The master RNG for this ravine, which was created from <code>seed</code>.
+     * @param seed The seed of this ravine.
+     * @return The horizontal scale mutations for every y-level.
+     */
+    private float[] getMutations(final XoRoShiRo rand, final long seed) {
+        if (this.noiseMutations != null) {
+            return this.noiseMutations;
+        }
+        synchronized (this.mutationCache) {
+            final Mutations cached = this.mutationCache.get(seed);
+            if (cached != null) {
+                rand.setState(cached.state);
+                return cached.values;
+            }
+        }
+        final float[] values = getMutationsVanilla(rand);
+        synchronized (this.mutationCache) {
+            this.mutationCache.put(seed, new Mutations(values, rand.getState()));
         }
+        return values;
     }
 
     /** The effectively vanilla implementation of getMutations(). */
-    private void fillMutationsVanilla(Random rand) {
+    private static float[] getMutationsVanilla(final Random rand) {
+        final float[] mut = new float[MUTATION_COUNT];
         float val = 1.0f;
         for (int i = 0; i < mut.length; i++) {
             if (i == 0 || rand.nextInt(3) == 0) {
                 val = rand.nextFloat() * rand.nextFloat() + 1.0f;
             }
-            this.mut[i] = val * val;
+            mut[i] = val * val;
         }
+        return mut;
     }
 
     /** Variant of getMutations() which produces aberrations using a noise generator. */
-    private void fillMutationsWithNoise() {
+    private float[] getMutationsWithNoise() {
+        final float[] mut = new float[MUTATION_COUNT];
         for (int i = 0; i < mut.length; i++) {
-            this.mut[i] = wallNoise.getNoiseScaled(0, i);
+            mut[i] = wallNoise.getNoiseScaled(0, i);
+        }
+        return mut;
+    }
+
+    /** A table of vanilla mutations and the state of the RNG after generating it. */
+    private static class Mutations {
+        final float[] values;
+        final long[] state;
+
+        Mutations(final float[] values, final long[] state) {
+            this.values = values;
+            this.state = state;
         }
     }
 }
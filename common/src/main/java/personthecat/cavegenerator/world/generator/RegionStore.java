@@ -0,0 +1,475 @@
+package personthecat.cavegenerator.world.generator;
+
+import lombok.extern.log4j.Log4j2;
+import org.hjson.JsonObject;
+import personthecat.cavegenerator.util.PlatformUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores every planned {@link MapRegion} in the world folder, which allows regions to be
+ * reused after the server restarts. Each region is written once as a series of fixed-width
+ * records and is read back through a memory-mapped file. Each mapping is released as soon
+ * as the region is decoded, so that no file stays locked after it has been read.
+ *
+ * <p>
+ *  Regions are grouped by a key which is generated when each preset is compiled. This key
+ *  depends on the name and expanded contents of the preset and on the world seed, which
+ *  means that any change to a preset also changes the folder in which its regions are
+ *  stored. When presets are loaded, any folder which belonged to a previous version of a
+ *  loaded preset is deleted. Folders belonging to presets which are not currently loaded
+ *  are kept, as these presets may only be disabled or temporarily broken.
+ * </p>
+ */
+@Log4j2
+public final class RegionStore {
+
+    private static final int MAGIC = 0x43474d52; // CGMR
+    private static final int VERSION = 1;
+    private static final String EXTENSION = ".bin";
+
+    /** A file in each preset folder containing the name of the preset which owns it. */
+    private static final String OWNER_FILE = "preset.txt";
+
+    private static final int HEADER_SIZE = 44;
+    private static final int PATH_SIZE = 40;
+    private static final int CHECK_SIZE = 16;
+    private static final int SPHERE_SIZE = 88;
+
+    private static final int NONE = -1;
+
+    /** The folder containing every region in the current world, if enabled. */
+    private static volatile @Nullable Path root;
+
+    /** Releases mapped buffers without waiting for them to be collected, if supported. */
+    private static final @Nullable Unmapper UNMAPPER = createUnmapper();
+
+    private RegionStore() {}
+
+    /**
+     * Enables the store for the current world.
+     *
+     * @param dir The folder in which regions will be stored.
+     */
+    public static void open(final Path dir) {
+        root = dir;
+    }
+
+    /** Disables the store until a world is loaded again. */
+    public static void close() {
+        root = null;
+    }
+
+    public static boolean isOpen() {
+        return root != null;
+    }
+
+    /**
+     * Generates the key used to store regions for a preset. The name, the contents of the
+     * preset, and the world seed are all that is needed to reproduce its regions.
+     *
+     * @param name The name of the preset, including the state of the RNG used to compile
+     *             it when that RNG is not derived from the name alone.
+     * @param raw  The expanded JSON of the preset.
+     * @param seed The world seed.
+     * @return The key, or else <code>null</code> if the key cannot be generated.
+     */
+    public static @Nullable String createKey(final String name, final JsonObject raw, final long seed) {
+        final String input = PlatformUtils.getModVersion() + ":" + seed + ":" + name + ":" + raw;
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(input.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Deletes every stored preset which has been superseded by a new version of the same
+     * preset. Regions stored for any preset which is not currently loaded are kept.
+     *
+     * @param keys The key of every preset currently loaded, by preset name.
+     */
+    public static void retainAll(final Map<String, String> keys) {
+        final Path dir = root;
+        if (dir == null) {
+            return;
+        }
+        keys.forEach((name, key) -> writeOwner(dir.resolve(key), name));
+        final File[] presets = dir.toFile().listFiles(File::isDirectory);
+        if (presets == null) {
+            return;
+        }
+        for (final File preset : presets) {
+            if (!keys.containsValue(preset.getName()) && keys.containsKey(readOwner(preset.toPath()))) {
+                final File[] regions = preset.listFiles();
+                if (regions != null) {
+                    for (final File region : regions) {
+                        region.delete();
+                    }
+                }
+                if (!preset.delete()) {
+                    log.debug("Unable to delete stale regions in {}. Will try again later.", preset.getName());
+                }
+            }
+        }
+    }
+
+    private static void writeOwner(final Path preset, final String name) {
+        final Path file = preset.resolve(OWNER_FILE);
+        if (Files.exists(file)) {
+            return;
+        }
+        try {
+            Files.createDirectories(preset);
+            Files.write(file, name.getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+            log.debug("Unable to record the owner of {}. It will not be deleted.", preset.getFileName());
+        }
+    }
+
+    private static @Nullable String readOwner(final Path preset) {
+        final Path file = preset.resolve(OWNER_FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a previously planned region from the disk.
+     *
+     * @param generator The generator which owns this region.
+     * @param key       The key of this generator, as assigned by its controller.
+     * @param regionX   The x-coordinate of the region, in regions.
+     * @param regionZ   The z-coordinate of the region, in regions.
+     * @param range     The current map range, in chunks.
+     * @return The region, or else <code>null</code> if it must be planned again.
+     */
+    static @Nullable MapRegion read(final MapGenerator generator, final String key, final int regionX, final int regionZ, final int range) {
+        final Path file = getFile(key, regionX, regionZ);
+        if (file == null || !Files.exists(file)) {
+            return null;
+        }
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return decode(generator, buffer, regionX, regionZ, range);
+            } finally {
+                unmap(buffer);
+            }
+        } catch (final IOException | RuntimeException e) {
+            log.debug("Unable to read {}. It will be planned again.", file.getFileName());
+            return null;
+        }
+    }
+
+    /**
+     * Writes a newly planned region to the disk, replacing any previous copy.
+     *
+     * @param generator The generator which owns this region.
+     * @param key       The key of this generator, as assigned by its controller.
+     * @param region    The region which was just planned.
+     */
+    static void write(final MapGenerator generator, final String key, final MapRegion region) {
+        final Path file = getFile(key, region.regionX, region.regionZ);
+        if (file == null) {
+            return;
+        }
+        try {
+            final ByteBuffer buffer = encode(generator, region);
+            Files.createDirectories(file.getParent());
+            final Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (final FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.close();
+                try {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (final AtomicMoveNotSupportedException ignored) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (final IOException | RuntimeException e) {
+            log.warn("Unable to write {}. It will be planned again next time.", file.getFileName());
+        }
+    }
+
+    /**
+     * Releases a mapped buffer immediately. Until then, the file it maps cannot be replaced
+     * or deleted on some platforms. The buffer must never be accessed again.
+     *
+     * @param buffer A buffer which has been fully decoded.
+     */
+    private static void unmap(final MappedByteBuffer buffer) {
+        if (UNMAPPER != null) {
+            try {
+                UNMAPPER.unmap(buffer);
+            } catch (final ReflectiveOperationException | RuntimeException e) {
+                log.debug("Unable to release mapped region. It will be released later.");
+            }
+        }
+    }
+
+    private static @Nullable Unmapper createUnmapper() {
+        try { // Java 9+
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            return buffer -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (final ReflectiveOperationException | RuntimeException ignored) {}
+        try { // Java 8
+            final Method getCleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                final Object cleaner = getCleaner.invoke(buffer);
+                if (cleaner != null) {
+                    clean.invoke(cleaner);
+                }
+            };
+        } catch (final ReflectiveOperationException | RuntimeException ignored) {}
+        log.debug("Unable to release mapped regions early. Mapped files will be released by GC.");
+        return null;
+    }
+
+    private static @Nullable Path getFile(final String key, final int regionX, final int regionZ) {
+        final Path dir = root;
+        if (dir == null) {
+            return null;
+        }
+        return dir.resolve(key + "." + regionX + "." + regionZ + EXTENSION);
+    }
+
+    private static ByteBuffer encode(final MapGenerator generator, final MapRegion region) {
+        final Map<MapRegion.Path, Integer> paths = new IdentityHashMap<>();
+        final Map<float[], Integer> mutations = new IdentityHashMap<>();
+        final List<float[]> tables = new ArrayList<>();
+        int checks = 0;
+        for (final MapRegion.Path path : region.paths) {
+            paths.put(path, paths.size());
+            checks += path.checks;
+            if (path.mutations != null && !mutations.containsKey(path.mutations)) {
+                mutations.put(path.mutations, tables.size());
+                tables.add(path.mutations);
+            }
+        }
+        final int tableSize = tables.isEmpty() ? 0 : tables.get(0).length;
+        final Map<MapRegion.Sphere, Integer> spheres = new IdentityHashMap<>();
+        final List<MapRegion.Sphere> ordered = new ArrayList<>();
+        int refs = 0;
+        for (int i = 0; i < MapRegion.CHUNKS; i++) {
+            for (int j = 0; j < region.sizes[i]; j++) {
+                final MapRegion.Sphere s = region.buckets[i][j];
+                if (!spheres.containsKey(s)) {
+                    spheres.put(s, ordered.size());
+                    ordered.add(s);
+                }
+            }
+            refs += region.sizes[i];
+        }
+        final int size = HEADER_SIZE + region.paths.size() * PATH_SIZE + checks * CHECK_SIZE
+            + tables.size() * tableSize * 4 + ordered.size() * SPHERE_SIZE + MapRegion.CHUNKS * 4 + refs * 4;
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+
+        buffer.putInt(MAGIC).putInt(VERSION)
+            .putInt(region.regionX).putInt(region.regionZ).putInt(region.range)
+            .putInt(region.paths.size()).putInt(checks)
+            .putInt(tables.size()).putInt(tableSize)
+            .putInt(ordered.size()).putInt(refs);
+
+        int offset = 0;
+        for (final MapRegion.Path path : region.paths) {
+            buffer.putInt(path.parent != null ? paths.get(path.parent) : NONE)
+                .putInt(path.branch)
+                .putInt(offset)
+                .putInt(path.checks)
+                .putInt(path.mutations != null ? mutations.get(path.mutations) : NONE)
+                .putInt(path.state != null ? 1 : 0)
+                .putLong(path.state != null ? path.state[0] : 0L)
+                .putLong(path.state != null ? path.state[1] : 0L);
+            offset += path.checks;
+        }
+        for (final MapRegion.Path path : region.paths) {
+            for (int i = 0; i < path.checks; i++) {
+                buffer.putFloat(path.xs[i]).putFloat(path.zs[i]).putFloat(path.scales[i]).putInt(path.remaining[i]);
+            }
+        }
+        for (final float[] table : tables) {
+            for (final float f : table) {
+                buffer.putFloat(f);
+            }
+        }
+        for (final MapRegion.Sphere s : ordered) {
+            buffer.putInt(paths.get(s.path))
+                .putInt(s.check)
+                .put(s.kind)
+                .put((byte) getDepth(generator, s.generator))
+                .putShort((short) 0)
+                .putInt(s.seed)
+                .putLong(s.state != null ? s.state[0] : 0L)
+                .putLong(s.state != null ? s.state[1] : 0L)
+                .putDouble(s.x).putDouble(s.y).putDouble(s.z)
+                .putDouble(s.rXZ).putDouble(s.rY).putDouble(s.roXZ).putDouble(s.roY);
+        }
+        for (int i = 0; i < MapRegion.CHUNKS; i++) {
+            buffer.putInt(region.sizes[i]);
+        }
+        for (int i = 0; i < MapRegion.CHUNKS; i++) {
+            for (int j = 0; j < region.sizes[i]; j++) {
+                buffer.putInt(spheres.get(region.buckets[i][j]));
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static @Nullable MapRegion decode(final MapGenerator generator, final ByteBuffer buffer,
+            final int regionX, final int regionZ, final int range) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+        if (buffer.getInt() != regionX || buffer.getInt() != regionZ || buffer.getInt() != range) {
+            return null;
+        }
+        final int pathCount = buffer.getInt();
+        final int checkCount = buffer.getInt();
+        final int tableCount = buffer.getInt();
+        final int tableSize = buffer.getInt();
+        final int sphereCount = buffer.getInt();
+        final int refCount = buffer.getInt();
+        final int size = HEADER_SIZE + pathCount * PATH_SIZE + checkCount * CHECK_SIZE
+            + tableCount * tableSize * 4 + sphereCount * SPHERE_SIZE + MapRegion.CHUNKS * 4 + refCount * 4;
+        if (buffer.limit() != size) {
+            return null;
+        }
+        final MapRegion region = new MapRegion(regionX, regionZ, range);
+
+        final int checksAt = HEADER_SIZE + pathCount * PATH_SIZE;
+        final int tablesAt = checksAt + checkCount * CHECK_SIZE;
+        final float[][] tables = new float[tableCount][tableSize];
+        buffer.position(tablesAt);
+        for (final float[] table : tables) {
+            for (int i = 0; i < tableSize; i++) {
+                table[i] = buffer.getFloat();
+            }
+        }
+        final int spheresAt = buffer.position();
+
+        buffer.position(HEADER_SIZE);
+        for (int i = 0; i < pathCount; i++) {
+            final int parent = buffer.getInt();
+            final int branch = buffer.getInt();
+            final int checksFrom = buffer.getInt();
+            final int checks = buffer.getInt();
+            final int table = buffer.getInt();
+            final boolean hasState = buffer.getInt() != 0;
+            final long s0 = buffer.getLong();
+            final long s1 = buffer.getLong();
+
+            final MapRegion.Path path = new MapRegion.Path(i, parent != NONE ? region.paths.get(parent) : null,
+                branch, table != NONE ? tables[table] : null);
+            path.state = hasState ? new long[] { s0, s1 } : null;
+            path.xs = new float[checks];
+            path.zs = new float[checks];
+            path.scales = new float[checks];
+            path.remaining = new int[checks];
+            path.checks = checks;
+            for (int j = 0; j < checks; j++) {
+                final int at = checksAt + (checksFrom + j) * CHECK_SIZE;
+                path.xs[j] = buffer.getFloat(at);
+                path.zs[j] = buffer.getFloat(at + 4);
+                path.scales[j] = buffer.getFloat(at + 8);
+                path.remaining[j] = buffer.getInt(at + 12);
+            }
+            region.paths.add(path);
+        }
+
+        buffer.position(spheresAt);
+        final MapRegion.Sphere[] spheres = new MapRegion.Sphere[sphereCount];
+        for (int i = 0; i < sphereCount; i++) {
+            final MapRegion.Path path = region.paths.get(buffer.getInt());
+            final int check = buffer.getInt();
+            final byte kind = buffer.get();
+            final MapGenerator owner = getGenerator(generator, buffer.get());
+            buffer.getShort();
+            final int seed = buffer.getInt();
+            final long s0 = buffer.getLong();
+            final long s1 = buffer.getLong();
+            final long[] state = kind == MapRegion.ROOM ? new long[] { s0, s1 } : null;
+            spheres[i] = new MapRegion.Sphere(owner, path, check, 0, 0, kind, seed, state,
+                buffer.getDouble(), buffer.getDouble(), buffer.getDouble(),
+                buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        }
+        final int[] sizes = new int[MapRegion.CHUNKS];
+        for (int i = 0; i < MapRegion.CHUNKS; i++) {
+            sizes[i] = buffer.getInt();
+        }
+        for (int i = 0; i < MapRegion.CHUNKS; i++) {
+            for (int j = 0; j < sizes[i]; j++) {
+                region.add(i, spheres[buffer.getInt()]);
+            }
+        }
+        return region;
+    }
+
+    /** Determines how many levels of branches separate a generator from the owner of a region. */
+    private static int getDepth(final MapGenerator owner, final MapGenerator generator) {
+        int depth = 0;
+        for (MapGenerator g = owner; g != null; g = g.getBranches()) {
+            if (g == generator) {
+                return depth;
+            }
+            depth++;
+        }
+        throw new IllegalStateException("Sphere generated by foreign generator");
+    }
+
+    private static MapGenerator getGenerator(final MapGenerator owner, final int depth) {
+        MapGenerator g = owner;
+        for (int i = 0; i < depth; i++) {
+            g = g.getBranches();
+            if (g == null) {
+                throw new IllegalStateException("Generator depth out of range: " + depth);
+            }
+        }
+        return g;
+    }
+
+    @FunctionalInterface
+    private interface Unmapper {
+        void unmap(ByteBuffer buffer) throws ReflectiveOperationException;
+    }
+}
@@ -0,0 +1,129 @@
+package personthecat.cavegenerator.world.generator;
+
+import personthecat.cavegenerator.model.TunnelPathInfo;
+import personthecat.cavegenerator.util.XoRoShiRo;
+
+import javax.annotation.Nullable;
+
+/**
+ * Receives every sphere traced by a {@link MapGenerator}. Spheres are either generated
+ * directly in the current chunk or recorded into a {@link MapRegion}, which will later
+ * generate them in every chunk they touch.
+ *
+ * <p>
+ *  Any test which depends on the chunk being generated belongs to the sink, which
+ *  allows the same tracing code to be used in both cases.
+ * </p>
+ */
+public abstract class SphereSink {
+
+    /** A sink which stops every path immediately and ignores every sphere. */
+    public static final SphereSink DISCARD = new SphereSink() {
+        @Override void beginPath(@Nullable float[] mutations) {}
+        @Override void endPath() {}
+        @Override boolean travelledTooFar(TunnelPathInfo path, int currentPos, int distance) { return true; }
+        @Override void addSegment(MapGenerator g, int seed, double x, double y, double z, double rXZ, double rY, double roXZ, double roY) {}
+        @Override void addSegment(MapGenerator g, XoRoShiRo rand, double x, double y, double z, double rXZ, double rY, double roXZ, double roY) {}
+        @Override void addRoom(MapGenerator g, XoRoShiRo rand, double x, double y, double z, double rXZ, double rY, double roXZ, double roY) {}
+        @Override int getChunkX() { return 0; }
+        @Override int getChunkZ() { return 0; }
+    };
+
+    /**
+     * Begins a new tunnel or ravine. If another path is in progress, the new path is
+     * treated as a branch of the current path.
+     *
+     * @param mutations The horizontal scale mutations used by ravines, if applicable.
+     */
+    abstract void beginPath(@Nullable float[] mutations);
+
+    /** Ends the current path, resuming its parent, if any. */
+    abstract void endPath();
+
+    /**
+     * Determines whether the current path is too far away to generate in this chunk.
+     *
+     * @param path       The path being traced.
+     * @param currentPos The number of segments traced so far.
+     * @param distance   The total number of segments in this path.
+     * @return <code>true</code>, if the path should stop.
+     */
+    abstract boolean travelledTooFar(TunnelPathInfo path, int currentPos, int distance);
+
+    /**
+     * Adds a single segment of the current path, which is decorated using an RNG created
+     * from its own seed. The segment will only generate if it touches the chunk and is
+     * not too close to any invalid chunk.
+     */
+    abstract void addSegment(MapGenerator g, int seed, double x, double y, double z, double rXZ, double rY, double roXZ, double roY);
+
+    /**
+     * Variant of {@link #addSegment(MapGenerator, int, double, double, double, double, double, double, double)}
+     * in which every segment of the path shares a single RNG. This RNG must not be used
+     * by anything else while tracing the path.
+     */
+    abstract void addSegment(MapGenerator g, XoRoShiRo rand, double x, double y, double z, double rXZ, double rY, double roXZ, double roY);
+
+    /** Adds a sphere which always generates, regardless of its position or any borders. */
+    abstract void addRoom(MapGenerator g, XoRoShiRo rand, double x, double y, double z, double rXZ, double rY, double roXZ, double roY);
+
+    /** The x-coordinate of the chunk being generated, or else the current origin chunk. */
+    abstract int getChunkX();
+
+    /** The z-coordinate of the chunk being generated, or else the current origin chunk. */
+    abstract int getChunkZ();
+
+    /** A sink which generates every sphere directly in the current chunk. */
+    static class ChunkSink extends SphereSink {
+        private final PrimerContext ctx;
+
+        ChunkSink(final PrimerContext ctx) {
+            this.ctx = ctx;
+        }
+
+        @Override
+        void beginPath(final @Nullable float[] mutations) {}
+
+        @Override
+        void endPath() {}
+
+        @Override
+        boolean travelledTooFar(final TunnelPathInfo path, final int currentPos, final int distance) {
+            return path.travelledTooFar(this.ctx, currentPos, distance);
+        }
+
+        @Override
+        void addSegment(MapGenerator g, int seed, double x, double y, double z, double rXZ, double rY, double roXZ, double roY) {
+            if (this.touches(g, x, z, roXZ)) {
+                g.generateSphere(this.ctx, new XoRoShiRo(seed), x, y, z, rXZ, rY, roXZ, roY);
+            }
+        }
+
+        @Override
+        void addSegment(MapGenerator g, XoRoShiRo rand, double x, double y, double z, double rXZ, double rY, double roXZ, double roY) {
+            if (this.touches(g, x, z, roXZ)) {
+                g.generateSphere(this.ctx, rand, x, y, z, rXZ, rY, roXZ, roY);
+            }
+        }
+
+        @Override
+        void addRoom(MapGenerator g, XoRoShiRo rand, double x, double y, double z, double rXZ, double rY, double roXZ, double roY) {
+            g.generateSphere(this.ctx, rand, x, y, z, rXZ, rY, roXZ, roY);
+        }
+
+        private boolean touches(final MapGenerator g, final double x, final double z, final double roXZ) {
+            return TunnelPathInfo.touchesChunk(x, z, this.ctx.centerX, this.ctx.centerZ, roXZ * 2.0)
+                && g.getNearestBorder((int) x, (int) z) >= roXZ + 9;
+        }
+
+        @Override
+        int getChunkX() {
+            return this.ctx.chunkX;
+        }
+
+        @Override
+        int getChunkZ() {
+            return this.ctx.chunkZ;
+        }
+    }
+}
@@ -15,11 +15,11 @@ public class TunnelConnector<Socket extends TunnelSocket> extends TunnelGenerato
     }
 
     @Override
-    protected void mapGenerate(final PrimerContext ctx, final int destX, final int destZ) {
-        this.bury(ctx, ctx.localRand.nextLong(), destX, destZ);
+    protected void mapGenerate(final SphereSink sink, final Random rand, final int destX, final int destZ) {
+        this.bury(sink, rand.nextLong(), destX, destZ);
     }
 
-    protected void bury(final PrimerContext ctx, final long seed, final int destX, final int destZ) {
+    protected void bury(final SphereSink sink, final long seed, final int destX, final int destZ) {
         final Random rand = new XoRoShiRo(seed);
         final int frequency = this.getTunnelCount(rand);
         for (int i = 0; i < frequency; i++) {
@@ -27,11 +27,11 @@ public class TunnelConnector<Socket extends TunnelSocket> extends TunnelGenerato
 
             for (int j = 0; j < this.getBranchCount(rand); j++) {
                 final TunnelPathInfo path = new TunnelPathInfo(cfg, rand, destX, destZ);
-                final int y = this.parent.getTunnelHeight(rand, (int) path.getX(), (int) path.getZ(), ctx.chunkX, ctx.chunkZ);
+                final int y = this.parent.getTunnelHeight(rand, (int) path.getX(), (int) path.getZ(), sink.getChunkX(), sink.getChunkZ());
 
                 if (y != TunnelSocket.CANNOT_SPAWN) {
                     path.setY(y);
-                    this.addTunnel(ctx, rand.nextLong(), path,0, distance);
+                    this.addTunnel(sink, rand.nextLong(), path,0, distance);
                 }
             }
         }
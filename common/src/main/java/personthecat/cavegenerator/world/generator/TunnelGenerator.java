@@ -31,8 +31,13 @@ public class TunnelGenerator extends MapGenerator {
     }
 
     @Override
-    protected void mapGenerate(final PrimerContext ctx, final int destX, final int destZ) {
-        this.createSystem(ctx, destX, destZ, ctx.localRand.nextLong());
+    protected void mapGenerate(final SphereSink sink, final Random rand, final int destX, final int destZ) {
+        this.createSystem(sink, destX, destZ, rand.nextLong());
+    }
+
+    @Override
+    protected @Nullable MapGenerator getBranches() {
+        return this.branches;
     }
 
     @Override
@@ -89,7 +94,7 @@ public class TunnelGenerator extends MapGenerator {
         }
     }
 
-    protected void createSystem(final PrimerContext ctx, final int destX, final int destZ, final long seed) {
+    protected void createSystem(final SphereSink sink, final int destX, final int destZ, final long seed) {
         final Random rand = new XoRoShiRo(seed);
         final int frequency = this.getTunnelCount(rand);
         for (int i = 0; i < frequency; i++) {
@@ -100,12 +105,12 @@ public class TunnelGenerator extends MapGenerator {
                 if (this.conditions.getColumn((int) path.getX(), (int) path.getZ()).contains((int) path.getY())) {
                     if (this.conditions.noise.getBoolean(path.getX(), path.getY(), path.getZ())) {
                         if (this.rooms != null && rand.nextInt(this.rooms.chance) == 0) {
-                            this.addRoom(ctx, rand, this.rooms.scale, this.rooms.stretch, path.getX(), path.getY(), path.getZ());
+                            this.addRoom(sink, rand, this.rooms.scale, this.rooms.stretch, path.getX(), path.getY(), path.getZ());
                             // From vanilla: alters the scale each time a room spawns. Remove this?
                             path.multiplyScale(rand.nextFloat() * rand.nextFloat() * 3.00F + 1.00F);
                         }
                         final long tunnelSeed = this.cfg.seed != null ? this.cfg.seed : rand.nextLong();
-                        this.addTunnel(ctx, tunnelSeed, path,0, distance);
+                        this.addTunnel(sink, tunnelSeed, path,0, distance);
                     }
                 }
             }
@@ -136,13 +141,19 @@ public class TunnelGenerator extends MapGenerator {
      * replacement of most variables, as well as a few new variables for controlling shapes, adding noise-based
      * alternatives to air, and wall decorations.
      *
-     * @param ctx      The current early generation context.
+     * @param sink     Receives every segment of this tunnel.
      * @param seed     A local seed used exclusively for this tunnel.
      * @param path     Data containing information about the path of tunnel segments to be created.
      * @param position A measure of progress until `distance`.
      * @param distance The length of the tunnel. 0 -> # ( 132 to 176 ).
      */
-    protected void addTunnel(PrimerContext ctx, long seed, TunnelPathInfo path, int position, int distance) {
+    protected void addTunnel(SphereSink sink, long seed, TunnelPathInfo path, int position, int distance) {
+        sink.beginPath(null);
+        this.traceTunnel(sink, seed, path, position, distance);
+        sink.endPath();
+    }
+
+    private void traceTunnel(SphereSink sink, long seed, TunnelPathInfo path, int position, int distance) {
         // Main RNG for this tunnel.
         final Random rand = new XoRoShiRo(seed);
         distance = this.getDistance(rand, distance);
@@ -161,7 +172,7 @@ public class TunnelGenerator extends MapGenerator {
             path.update(rand, this.cfg.noiseYReduction, randomNoiseCorrection ? 0.92F : 0.70F, 0.1F);
 
             if (path.getScale() > 1.00F && distance > 0 && currentPos == randomBranchIndex && currentPos != position) {
-                this.addBranches(ctx, rand, seed, path, currentPos, distance);
+                this.addBranches(sink, rand, seed, path, currentPos, distance);
                 return;
             }
             // Effectively sets the tunnel resolution by randomly skipping
@@ -170,21 +181,15 @@ public class TunnelGenerator extends MapGenerator {
                 continue;
             }
             // Make sure we haven't travelled too far?
-            if (path.travelledTooFar(ctx, currentPos, distance)) {
+            if (sink.travelledTooFar(path, currentPos, distance)) {
                 return;
             }
             // Avoid issues with inconsistent Random calls.
             final int decSeed = rand.nextInt();
-            if (!path.touchesChunk(ctx, roXZ * 2.0)) {
-                continue;
-            }
-            if (this.getNearestBorder((int) path.getX(), (int) path.getZ()) < roXZ + 9) {
-                continue;
-            }
             if (!this.conditions.height.contains((int) path.getY())) {
                 continue;
             }
-            this.generateSphere(ctx, new XoRoShiRo(decSeed), path.getX(), path.getY(), path.getZ(), rXZ, rY, roXZ, roY);
+            sink.addSegment(this, decSeed, path.getX(), path.getY(), path.getZ(), rXZ, rY, roXZ, roY);
         }
     }
 
@@ -193,24 +198,24 @@ public class TunnelGenerator extends MapGenerator {
      * single, symmetrical spheres, known internally as "rooms." This may be
      * slightly more redundant, but it should increase the algorithm's readability.
      */
-    private void addRoom(PrimerContext ctx, Random main, float scale, float stretch, double x, double y, double z) {
+    private void addRoom(SphereSink sink, Random main, float scale, float stretch, double x, double y, double z) {
         // Construct these initial values using `rand`, consistent
         // with the vanilla setup.
         final long seed = main.nextLong();
         scale = main.nextFloat() * scale + 1;
         // Construct a local Random object for use within this function,
         // also matching the vanilla setup.
-        final Random local = new XoRoShiRo(seed);
+        final XoRoShiRo local = new XoRoShiRo(seed);
         final int distance = getDistance(local, 0);
         final int position = distance / 2;
         // Determine the radius by `scale`.
         final double rXZ = 1.5D + (Mth.sin(position * (float) Math.PI / distance) * scale);
         final double rY = rXZ * stretch;
         final double d = this.decorators.shell.radius;
-        this.generateSphere(ctx, local, x, y, z, rXZ, rY, rXZ + d, rY + d);
+        sink.addRoom(this, local, x, y, z, rXZ, rY, rXZ + d, rY + d);
     }
 
-    private void addBranches(PrimerContext ctx, Random rand, long seed, TunnelPathInfo path, int currentPos, int distance) {
+    private void addBranches(SphereSink sink, Random rand, long seed, TunnelPathInfo path, int currentPos, int distance) {
         if (!this.cfg.hasBranches) return;
         final float yaw1 = path.getYaw() - PI_OVER_2;
         final float yaw2 = path.getYaw() + PI_OVER_2;
@@ -234,8 +239,8 @@ public class TunnelGenerator extends MapGenerator {
             } else {
                 seedA = seedB = seed;
             }
-            this.branches.addTunnel(ctx, seedA, reset1, currentPos, distance);
-            this.branches.addTunnel(ctx, seedB, reset2, currentPos, distance);
+            this.branches.addTunnel(sink, seedA, reset1, currentPos, distance);
+            this.branches.addTunnel(sink, seedB, reset2, currentPos, distance);
         } else {
             final long seedA, seedB;
             if (this.cfg.seed != null) {
@@ -246,8 +251,8 @@ public class TunnelGenerator extends MapGenerator {
             } else {
                 seedA = seedB = seed;
             }
-            this.addTunnel(ctx, seedA, reset1, currentPos, distance);
-            this.addTunnel(ctx, seedB, reset2, currentPos, distance);
+            this.addTunnel(sink, seedA, reset1, currentPos, distance);
+            this.addTunnel(sink, seedB, reset2, currentPos, distance);
         }
     }
 }
@@ -1,38 +1,140 @@
 package personthecat.cavegenerator.world.generator;
 
+import lombok.AllArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.core.Registry;
+import net.minecraft.core.RegistryAccess;
+import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.level.biome.Biome;
 import net.minecraft.world.level.biome.BiomeGenerationSettings;
 import net.minecraft.world.level.biome.BiomeSource;
+import net.minecraft.world.level.levelgen.GenerationStep;
 import net.minecraft.world.level.levelgen.WorldgenRandom;
 import net.minecraft.world.level.levelgen.carver.ConfiguredWorldCarver;
 import personthecat.cavegenerator.config.Cfg;
 
+import javax.annotation.Nullable;
 import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
+@Log4j2
 public class WorldCarverAdapter {
+
+    /** The resolved carvers for every step, which only depend on the biome being carved. */
+    private static final Map<BiomeGenerationSettings, CarverEntry[][]> CARVERS = new ConcurrentHashMap<>();
+
+    /** The configured carvers known to the current server, including any from data packs. */
+    private static volatile @Nullable Registry<ConfiguredWorldCarver<?>> registry;
+
+    /** The maximum reach for each configured carver, parsed once when the server starts. */
+    private static volatile Map<ResourceLocation, Integer> reaches = Collections.emptyMap();
+
     public static void generate(final PrimerContext ctx, final BiomeSource source) {
         final int cX = ctx.chunkX;
         final int cZ = ctx.chunkZ;
         final Biome sourceBiome = source.getNoiseBiome(cX << 2, 0, cZ << 2);
-        final BiomeGenerationSettings settings = sourceBiome.getGenerationSettings();
+        final CarverEntry[] carvers = getCarvers(sourceBiome.getGenerationSettings(), ctx.step);
         final BitSet carvingMask = ctx.primer.getOrCreateCarvingMask(ctx.step);
+        if (carvers.length == 0) {
+            return;
+        }
         final WorldgenRandom rand = new WorldgenRandom();
 
-        final int r = Cfg.mapRange();
+        final int r = getMaxReach(carvers);
         for (int x = cX - r; x <= cX + r; x++) {
+            final int dX = Math.abs(x - cX);
             for (int z = cZ - r; z <= cZ + r; z++) {
-                final List<Supplier<ConfiguredWorldCarver<?>>> carvers = settings.getCarvers(ctx.step);
+                final int d = Math.max(dX, Math.abs(z - cZ));
 
-                for (int i = 0; i < carvers.size(); i++) {
-                    final ConfiguredWorldCarver<?> carver = carvers.get(i).get();
-                    rand.setLargeFeatureSeed(ctx.seed + i, x, z);
-                    if (carver.isStartChunk(rand, x, z)) {
-                        carver.carve(ctx.primer, ctx.provider::getBiome, rand, ctx.seaLevel, x, z, cX, cZ, carvingMask);
+                for (final CarverEntry entry : carvers) {
+                    if (d > entry.reach) continue;
+                    rand.setLargeFeatureSeed(ctx.seed + entry.index, x, z);
+                    if (entry.carver.isStartChunk(rand, x, z)) {
+                        entry.carver.carve(ctx.primer, ctx.provider::getBiome, rand, ctx.seaLevel, x, z, cX, cZ, carvingMask);
                     }
                 }
             }
         }
     }
+
+    /**
+     * Reads the configured carvers from the current server and parses each carver's reach
+     * from the config. Any carvers resolved before this point are discarded.
+     *
+     * @param registries The registries of the server being started.
+     */
+    public static void load(final RegistryAccess registries) {
+        final Registry<ConfiguredWorldCarver<?>> carvers = registries.registryOrThrow(Registry.CONFIGURED_CARVER_REGISTRY);
+        registry = carvers;
+        reaches = loadCarverReaches(carvers);
+        CARVERS.clear();
+    }
+
+    /** Discards every cached carver, which must happen whenever the biome registry changes. */
+    public static void clearCache() {
+        CARVERS.clear();
+        registry = null;
+        reaches = Collections.emptyMap();
+    }
+
+    private static int getMaxReach(final CarverEntry[] carvers) {
+        int max = 0;
+        for (final CarverEntry entry : carvers) {
+            max = Math.max(max, entry.reach);
+        }
+        return max;
+    }
+
+    private static CarverEntry[] getCarvers(final BiomeGenerationSettings settings, final GenerationStep.Carving step) {
+        return CARVERS.computeIfAbsent(settings, WorldCarverAdapter::resolveCarvers)[step.ordinal()];
+    }
+
+    private static CarverEntry[][] resolveCarvers(final BiomeGenerationSettings settings) {
+        final Registry<ConfiguredWorldCarver<?>> registry = WorldCarverAdapter.registry;
+        final Map<ResourceLocation, Integer> reaches = WorldCarverAdapter.reaches;
+        final int range = Cfg.mapRange();
+        final GenerationStep.Carving[] steps = GenerationStep.Carving.values();
+        final CarverEntry[][] resolved = new CarverEntry[steps.length][];
+        for (final GenerationStep.Carving step : steps) {
+            final List<Supplier<ConfiguredWorldCarver<?>>> carvers = settings.getCarvers(step);
+            final CarverEntry[] entries = new CarverEntry[carvers.size()];
+            for (int i = 0; i < entries.length; i++) {
+                final ConfiguredWorldCarver<?> carver = carvers.get(i).get();
+                final ResourceLocation id = registry != null ? registry.getKey(carver) : null;
+                final int reach = id != null ? Math.min(range, reaches.getOrDefault(id, range)) : range;
+                entries[i] = new CarverEntry(carver, i, reach);
+            }
+            resolved[step.ordinal()] = entries;
+        }
+        return resolved;
+    }
+
+    private static Map<ResourceLocation, Integer> loadCarverReaches(final Registry<ConfiguredWorldCarver<?>> registry) {
+        final Map<ResourceLocation, Integer> reaches = new HashMap<>();
+        for (final String entry : Cfg.carverReach()) {
+            final int split = entry.lastIndexOf('=');
+            try {
+                final ResourceLocation key = new ResourceLocation(entry.substring(0, split).trim());
+                final int reach = Integer.parseInt(entry.substring(split + 1).trim());
+                if (registry.get(key) != null && reach >= 0) {
+                    reaches.put(key, reach);
+                    continue;
+                }
+            } catch (final RuntimeException ignored) {}
+            log.error("Invalid carver reach. Expected <carver>=<chunks>: {}", entry);
+        }
+        return reaches;
+    }
+
+    @AllArgsConstructor
+    private static class CarverEntry {
+        final ConfiguredWorldCarver<?> carver;
+        final int index;
+        final int reach;
+    }
 }
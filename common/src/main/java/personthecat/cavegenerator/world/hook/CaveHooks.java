@@ -35,7 +35,7 @@ public class CaveHooks {
         if (step == Carving.AIR) {
             ctx.primeHeightmaps();
             CaveRegistries.CURRENT_SEED.setIfAbsent(new XoRoShiRo(seed), seed);
-            for (final GeneratorController controller : CaveRegistries.GENERATORS) {
+            for (final GeneratorController controller : CaveRegistries.DIMENSIONS.getCarvers(biomeSource, primer)) {
                 controller.earlyGenerate(ctx);
                 controller.mapGenerate(ctx);
             }
@@ -47,7 +47,7 @@ public class CaveHooks {
         final WorldContext ctx = new WorldContext(region);
         CaveRegistries.CURRENT_SEED.setIfAbsent(ctx.rand, ctx.seed);
 
-        for (final GeneratorController controller : CaveRegistries.GENERATORS) {
+        for (final GeneratorController controller : CaveRegistries.DIMENSIONS.getFeatures(ctx.level)) {
             controller.featureGenerate(ctx);
         }
         CachedNoiseHelper.resetAll();
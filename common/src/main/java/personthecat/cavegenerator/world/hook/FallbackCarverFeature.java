@@ -0,0 +1,96 @@
+package personthecat.cavegenerator.world.hook;
+
+import com.mojang.serialization.Codec;
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Registry;
+import net.minecraft.data.BuiltinRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.WorldGenRegion;
+import net.minecraft.world.level.WorldGenLevel;
+import net.minecraft.world.level.biome.BiomeManager;
+import net.minecraft.world.level.biome.BiomeSource;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.ChunkGenerator;
+import net.minecraft.world.level.chunk.ProtoChunk;
+import net.minecraft.world.level.levelgen.GenerationStep;
+import net.minecraft.world.level.levelgen.feature.ConfiguredFeature;
+import net.minecraft.world.level.levelgen.feature.Feature;
+import net.minecraft.world.level.levelgen.feature.configurations.FeatureConfiguration;
+import net.minecraft.world.level.levelgen.feature.configurations.NoneFeatureConfiguration;
+import personthecat.cavegenerator.CaveRegistries;
+import personthecat.cavegenerator.config.Cfg;
+import personthecat.cavegenerator.noise.CachedNoiseHelper;
+import personthecat.cavegenerator.util.Reference;
+import personthecat.cavegenerator.util.XoRoShiRo;
+import personthecat.cavegenerator.world.BiomeSearch;
+import personthecat.cavegenerator.world.GeneratorController;
+import personthecat.cavegenerator.world.generator.PrimerContext;
+import personthecat.overwritevalidator.annotations.OverwriteTarget;
+
+import java.util.Random;
+
+/**
+ * An alternative to {@link FallbackCarverHook} which runs every early generator from
+ * the first decoration step instead of from a world carver.
+ *
+ * <p>
+ *  Vanilla invokes each world carver once for every origin chunk in range of the chunk
+ *  being carved, even though the fallback carver only generates from the center. This
+ *  feature is instead placed exactly once per chunk and has access to the actual biome
+ *  source. The tradeoff is that it runs after every other carver in the world, including
+ *  any liquid carvers.
+ * </p>
+ *
+ * <p>
+ *  Both hooks use the same configured seed, so that either one produces the same caves.
+ *  Because the feature heightmaps have already been primed at this point, every heightmap
+ *  in the chunk is updated along with the blocks being carved.
+ * </p>
+ */
+@Log4j2
+@OverwriteTarget
+public class FallbackCarverFeature extends Feature<NoneFeatureConfiguration> {
+
+    private static final FallbackCarverFeature INSTANCE = new FallbackCarverFeature();
+    public static final ConfiguredFeature<?, ?> HOOK = INSTANCE.configured(FeatureConfiguration.NONE);
+
+    private FallbackCarverFeature() {
+        super(Codec.unit(NoneFeatureConfiguration.INSTANCE));
+    }
+
+    @Override
+    public boolean place(WorldGenLevel world, ChunkGenerator chunk, Random rand, BlockPos pos, NoneFeatureConfiguration cfg) {
+        final WorldGenRegion region = (WorldGenRegion) world;
+        final ChunkAccess primer = region.getChunk(region.getCenterX(), region.getCenterZ());
+        if (!(primer instanceof ProtoChunk)) {
+            return false;
+        }
+        final BiomeSource source = chunk.getBiomeSource();
+        final BiomeManager biomes = region.getBiomeManager().withDifferentSource(source);
+        final BiomeSearch search = BiomeSearch.in(biomes, region.getCenterX(), region.getCenterZ());
+        final long seed = Cfg.fallbackCarverSeed();
+        final PrimerContext ctx = new PrimerContext(biomes, search, seed, chunk.getSeaLevel(), (ProtoChunk) primer, GenerationStep.Carving.AIR);
+
+        ctx.primeHeightmaps();
+        ctx.trackAllHeightmaps();
+        CaveRegistries.CURRENT_SEED.setIfAbsent(new XoRoShiRo(seed), seed);
+        for (final GeneratorController controller : CaveRegistries.DIMENSIONS.getCarvers(source, ctx.primer)) {
+            controller.earlyGenerate(ctx);
+            controller.mapGenerate(ctx);
+        }
+        CachedNoiseHelper.resetAll();
+        return true;
+    }
+
+    public static void register() {
+        log.info("Loading fallback carver feature.");
+
+        Registry.register(Registry.FEATURE,
+            new ResourceLocation(Reference.MOD_ID, "fallback_carver_feature"),
+            INSTANCE);
+        Registry.register(BuiltinRegistries.CONFIGURED_FEATURE,
+            new ResourceLocation(Reference.MOD_ID, "configured_fallback_carver_feature"),
+            HOOK);
+    }
+}
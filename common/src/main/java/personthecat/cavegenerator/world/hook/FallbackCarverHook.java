@@ -51,7 +51,7 @@ public class FallbackCarverHook extends WorldCarver<NoneCarverConfiguration> {
 
             ctx.primeHeightmaps();
             CaveRegistries.CURRENT_SEED.setIfAbsent(new XoRoShiRo(this.seed), this.seed);
-            for (final GeneratorController controller : CaveRegistries.GENERATORS) {
+            for (final GeneratorController controller : CaveRegistries.DIMENSIONS.getCarvers(ctx.primer)) {
                 controller.earlyGenerate(ctx);
                 controller.mapGenerate(ctx);
             }
@@ -38,7 +38,7 @@ public class FallbackFeatureHook extends Feature<NoneFeatureConfiguration> {
         final WorldContext ctx = new WorldContext((WorldGenRegion) world);
         CaveRegistries.CURRENT_SEED.setIfAbsent(ctx.rand, ctx.seed);
 
-        for (final GeneratorController controller : CaveRegistries.GENERATORS) {
+        for (final GeneratorController controller : CaveRegistries.DIMENSIONS.getFeatures(ctx.level)) {
             controller.featureGenerate(ctx);
         }
         CachedNoiseHelper.resetAll();
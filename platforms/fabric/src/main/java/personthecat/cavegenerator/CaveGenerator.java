@@ -3,6 +3,7 @@ package personthecat.cavegenerator;
 import lombok.extern.log4j.Log4j2;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.minecraft.server.MinecraftServer;
 import personthecat.catlib.exception.MissingOverrideException;
 import personthecat.overwritevalidator.annotations.Inherit;
@@ -18,6 +19,7 @@ public class CaveGenerator implements ModInitializer {
 
         ServerLifecycleEvents.SERVER_STARTING.register(this::serverStarting);
         ServerLifecycleEvents.SERVER_STOPPING.register(this::serverStopping);
+        ServerTickEvents.END_SERVER_TICK.register(server -> this.serverTick());
     }
 
     @Inherit
@@ -31,6 +33,11 @@ public class CaveGenerator implements ModInitializer {
         throw new MissingOverrideException();
     }
 
+    @Inherit
+    public void serverTick() {
+        throw new MissingOverrideException();
+    }
+
     @Inherit
     @SuppressWarnings("unused")
     public void serverStopping(final MinecraftServer server) {
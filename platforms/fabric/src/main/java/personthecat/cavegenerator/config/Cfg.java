@@ -47,6 +47,13 @@ public class Cfg implements ConfigData {
         "For a list of all features, run `/cave debug structures`.")
     public String[] disabledStructures = {};
 
+    @Comment(
+        "When enableOtherGenerators is set, limits the range in chunks\n" +
+        "searched for the origins of individual world carvers. Any\n" +
+        "carver not listed will use mapRange.\n" +
+        "For example, `minecraft:cave=4`.")
+    public String[] carverReach = {};
+
     @Comment(
         "Whether to apply preset transforms after expressions are\n" +
         "evaluated. These changes will not be saved. This is essentially\n" +
@@ -59,6 +66,13 @@ public class Cfg implements ConfigData {
         "for support with mods that use custom chunk generators.")
     public boolean fallbackCarvers = false;
 
+    @Comment(
+        "When fallbackCarvers is enabled, whether to run the fallback\n" +
+        "generator once per chunk from a feature instead of a carver.\n" +
+        "This is faster, but runs after any other carvers, including\n" +
+        "liquid carvers.")
+    public boolean fallbackCarverFeature = false;
+
     @Comment(
         "Whether to enable the fallback feature compatibility layer\n" +
         "for support with mods that use custom chunk generators.")
@@ -107,9 +121,34 @@ public class Cfg implements ConfigData {
         "possible. Note that compatibility updates will still occur.")
     public boolean updateImports = true;
 
+    @Comment(
+        "The maximum number of threads used to load presets. Set\n" +
+        "this value to 1 to load every preset on the main thread.\n" +
+        "Must be between 1 and 32.")
+    public int presetThreads = 4;
+
+    @Comment(
+        "Whether to compile each preset with its own RNG, derived\n" +
+        "from its name, instead of one RNG shared by every preset.\n" +
+        "This allows presets to be reloaded individually, but it\n" +
+        "changes the caves in any world created without it.")
+    public boolean isolatePresetSeeds = false;
+
     @Comment("The chunk search range for tunnel and ravine features.")
     public int mapRange = 8;
 
+    @Comment(
+        "Whether to plan tunnels and ravines once per 32x32 chunk\n" +
+        "region and reuse them in every chunk of that region. This\n" +
+        "is much faster, but uses more memory.")
+    public boolean planMapRegions = false;
+
+    @Comment(
+        "When planMapRegions is set, whether to save each planned\n" +
+        "region in the world folder so that it can be reused after\n" +
+        "a restart. Regions are discarded when their preset changes.")
+    public boolean storeMapRegions = false;
+
     @Comment(
         "The range in chunks to read biomes for features that use\n" +
         "distance-based biome testing.")
@@ -120,6 +159,12 @@ public class Cfg implements ConfigData {
         "is enabled.")
     public long fallbackCarverSeed = 24L;
 
+    @Comment(
+        "The maximum number of structure commands to run on the\n" +
+        "server thread each tick. Any remaining commands will run\n" +
+        "on the following ticks. Must be between 1 and 4096.")
+    public int commandsPerTick = 64;
+
     @Overwrite
     public static void register() {
         AutoConfig.register(Cfg.class, HjsonConfigSerializer::new);
@@ -143,6 +188,11 @@ public class Cfg implements ConfigData {
         return Arrays.asList(CONFIG.get().disabledStructures);
     }
 
+    @Overwrite
+    public static List<String> carverReach() {
+        return Arrays.asList(CONFIG.get().carverReach);
+    }
+
     @Overwrite
     public static boolean deepTransforms() {
         return CONFIG.get().deepTransforms;
@@ -153,6 +203,11 @@ public class Cfg implements ConfigData {
         return CONFIG.get().fallbackCarvers;
     }
 
+    @Overwrite
+    public static boolean fallbackCarverFeature() {
+        return CONFIG.get().fallbackCarverFeature;
+    }
+
     @Overwrite
     public static boolean fallbackFeatures() {
         return CONFIG.get().fallbackFeatures;
@@ -188,11 +243,31 @@ public class Cfg implements ConfigData {
         return CONFIG.get().updateImports;
     }
 
+    @Overwrite
+    public static int presetThreads() {
+        return Math.max(1, Math.min(32, CONFIG.get().presetThreads));
+    }
+
+    @Overwrite
+    public static boolean isolatePresetSeeds() {
+        return CONFIG.get().isolatePresetSeeds;
+    }
+
     @Overwrite
     public static int mapRange() {
         return CONFIG.get().mapRange;
     }
 
+    @Overwrite
+    public static boolean planMapRegions() {
+        return CONFIG.get().planMapRegions;
+    }
+
+    @Overwrite
+    public static boolean storeMapRegions() {
+        return CONFIG.get().storeMapRegions;
+    }
+
     @Overwrite
     public static int biomeRange() {
         return CONFIG.get().biomeRange;
@@ -202,4 +277,9 @@ public class Cfg implements ConfigData {
     public static long fallbackCarverSeed() {
         return CONFIG.get().fallbackCarverSeed;
     }
+
+    @Overwrite
+    public static int commandsPerTick() {
+        return Math.max(1, Math.min(4096, CONFIG.get().commandsPerTick));
+    }
 }
@@ -0,0 +1,19 @@
+package personthecat.cavegenerator.util;
+
+import net.fabricmc.loader.api.FabricLoader;
+import org.jetbrains.annotations.Nullable;
+import personthecat.overwritevalidator.annotations.InheritMissingMembers;
+import personthecat.overwritevalidator.annotations.Overwrite;
+import personthecat.overwritevalidator.annotations.OverwriteClass;
+
+@OverwriteClass
+@InheritMissingMembers
+public class PlatformUtils {
+
+    @Overwrite
+    public static @Nullable String getModVersion() {
+        return FabricLoader.getInstance().getModContainer(Reference.MOD_ID)
+            .map(c -> c.getMetadata().getVersion().getFriendlyString())
+            .orElse(null);
+    }
+}
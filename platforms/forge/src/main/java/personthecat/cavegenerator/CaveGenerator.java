@@ -3,6 +3,7 @@ package personthecat.cavegenerator;
 import lombok.extern.log4j.Log4j2;
 import net.minecraft.server.MinecraftServer;
 import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.eventbus.api.IEventBus;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
@@ -26,6 +27,9 @@ public class CaveGenerator {
         modBus.addListener((FMLCommonSetupEvent e) -> this.initCommon());
         eventBus.addListener((FMLServerStartingEvent e) -> this.serverStarting(e.getServer()));
         eventBus.addListener((FMLServerStoppingEvent e) -> this.serverStopping(e.getServer()));
+        eventBus.addListener((TickEvent.ServerTickEvent e) -> {
+            if (e.phase == TickEvent.Phase.END) this.serverTick();
+        });
     }
 
     @Inherit
@@ -39,6 +43,11 @@ public class CaveGenerator {
         throw new MissingOverrideException();
     }
 
+    @Inherit
+    public void serverTick() {
+        throw new MissingOverrideException();
+    }
+
     @Inherit
     @SuppressWarnings("unused")
     public void serverStopping(final MinecraftServer server) {
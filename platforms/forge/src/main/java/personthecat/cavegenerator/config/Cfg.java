@@ -64,6 +64,13 @@ public class Cfg {
                 "For a list of all features, run `/cave debug structures`.")
         .define("disabledStructures", Collections.emptyList(), Objects::nonNull);
 
+    private static final ConfigValue<List<String>> CARVER_REACH = COMMON
+        .comment("When enableOtherGenerators is set, limits the range in chunks",
+                "searched for the origins of individual world carvers. Any",
+                "carver not listed will use mapRange.",
+                "For example, `minecraft:cave=4`.")
+        .define("carverReach", Collections.emptyList(), Objects::nonNull);
+
     private static final BooleanValue DEEP_TRANSFORMS = COMMON
         .comment("Whether to apply preset transforms after expressions are",
                 "evaluated. These changes will not be saved. This is essentially",
@@ -76,6 +83,13 @@ public class Cfg {
                 "for support with mods that use custom chunk generators.")
         .define("fallbackCarvers", false);
 
+    private static final BooleanValue FALLBACK_CARVER_FEATURE = COMMON
+        .comment("When fallbackCarvers is enabled, whether to run the fallback",
+                "generator once per chunk from a feature instead of a carver.",
+                "This is faster, but runs after any other carvers, including",
+                "liquid carvers.")
+        .define("fallbackCarverFeature", false);
+
     private static final BooleanValue FALLBACK_FEATURES = COMMON
         .comment("Whether to enable the fallback feature compatibility layer",
                 "for support with mods that use custom chunk generators.")
@@ -117,10 +131,34 @@ public class Cfg {
                 "occur.")
         .define("updateImports", true);
 
+    private static final IntValue PRESET_THREADS = COMMON
+        .comment("The maximum number of threads used to load presets. Set",
+                "this value to 1 to load every preset on the main thread.")
+        .defineInRange("presetThreads", 4, 1, 32);
+
+    private static final BooleanValue ISOLATE_PRESET_SEEDS = COMMON
+        .comment("Whether to compile each preset with its own RNG, derived",
+                "from its name, instead of one RNG shared by every preset.",
+                "This allows presets to be reloaded individually, but it",
+                "changes the caves in any world created without it.")
+        .define("isolatePresetSeeds", false);
+
     private static final IntValue MAP_RANGE = COMMON
         .comment("The search range for tunnel and ravine features.")
         .defineInRange("mapRange", 8, 1, 20);
 
+    private static final BooleanValue PLAN_MAP_REGIONS = COMMON
+        .comment("Whether to plan tunnels and ravines once per 32x32 chunk",
+                "region and reuse them in every chunk of that region. This",
+                "is much faster, but uses more memory.")
+        .define("planMapRegions", false);
+
+    private static final BooleanValue STORE_MAP_REGIONS = COMMON
+        .comment("When planMapRegions is set, whether to save each planned",
+                "region in the world folder so that it can be reused after",
+                "a restart. Regions are discarded when their preset changes.")
+        .define("storeMapRegions", false);
+
     private static final IntValue BIOME_RANGE = COMMON
         .comment("The range in chunks to read biomes for features that use",
                 "distance-based biome testing.")
@@ -131,6 +169,12 @@ public class Cfg {
                 "is enabled.")
         .defineInRange("fallbackCarverSeed", 24L, Long.MIN_VALUE, Long.MAX_VALUE);
 
+    private static final IntValue COMMANDS_PER_TICK = COMMON
+        .comment("The maximum number of structure commands to run on the",
+                "server thread each tick. Any remaining commands will run",
+                "on the following ticks.")
+        .defineInRange("commandsPerTick", 64, 1, 4096);
+
     @Overwrite
     public static List<String> disabledCarvers() {
         return DISABLED_CARVERS.get();
@@ -146,6 +190,11 @@ public class Cfg {
         return DISABLED_STRUCTURES.get();
     }
 
+    @Overwrite
+    public static List<String> carverReach() {
+        return CARVER_REACH.get();
+    }
+
     @Overwrite
     public static boolean deepTransforms() {
         return DEEP_TRANSFORMS.get();
@@ -156,6 +205,11 @@ public class Cfg {
         return FALLBACK_CARVERS.get();
     }
 
+    @Overwrite
+    public static boolean fallbackCarverFeature() {
+        return FALLBACK_CARVER_FEATURE.get();
+    }
+
     @Overwrite
     public static boolean fallbackFeatures() {
         return FALLBACK_FEATURES.get();
@@ -191,11 +245,31 @@ public class Cfg {
         return UPDATE_IMPORTS.get();
     }
 
+    @Overwrite
+    public static int presetThreads() {
+        return PRESET_THREADS.get();
+    }
+
+    @Overwrite
+    public static boolean isolatePresetSeeds() {
+        return ISOLATE_PRESET_SEEDS.get();
+    }
+
     @Overwrite
     public static int mapRange() {
         return MAP_RANGE.get();
     }
 
+    @Overwrite
+    public static boolean planMapRegions() {
+        return PLAN_MAP_REGIONS.get();
+    }
+
+    @Overwrite
+    public static boolean storeMapRegions() {
+        return STORE_MAP_REGIONS.get();
+    }
+
     @Overwrite
     public static int biomeRange() {
         return BIOME_RANGE.get();
@@ -205,4 +279,9 @@ public class Cfg {
     public static long fallbackCarverSeed() {
         return FALLBACK_CARVER_SEED.get();
     }
+
+    @Overwrite
+    public static int commandsPerTick() {
+        return COMMANDS_PER_TICK.get();
+    }
 }
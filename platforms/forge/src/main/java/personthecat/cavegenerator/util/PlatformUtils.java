@@ -0,0 +1,25 @@
+package personthecat.cavegenerator.util;
+
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.fml.ModList;
+import org.jetbrains.annotations.Nullable;
+import personthecat.overwritevalidator.annotations.InheritMissingMembers;
+import personthecat.overwritevalidator.annotations.Overwrite;
+import personthecat.overwritevalidator.annotations.OverwriteClass;
+
+@OverwriteClass
+@InheritMissingMembers
+public class PlatformUtils {
+
+    @Overwrite
+    public static @Nullable String getModVersion() {
+        return ModList.get().getModContainerById(Reference.MOD_ID)
+            .map(c -> c.getModInfo().getVersion().toString())
+            .orElse(null);
+    }
+
+    @Overwrite
+    public static boolean hasBlockEntity(final BlockState state) {
+        return state.hasTileEntity();
+    }
+}
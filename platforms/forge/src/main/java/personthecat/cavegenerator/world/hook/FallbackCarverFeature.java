@@ -0,0 +1,60 @@
+package personthecat.cavegenerator.world.hook;
+
+import com.mojang.serialization.Codec;
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Registry;
+import net.minecraft.data.BuiltinRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.WorldGenLevel;
+import net.minecraft.world.level.chunk.ChunkGenerator;
+import net.minecraft.world.level.levelgen.feature.ConfiguredFeature;
+import net.minecraft.world.level.levelgen.feature.Feature;
+import net.minecraft.world.level.levelgen.feature.configurations.FeatureConfiguration;
+import net.minecraft.world.level.levelgen.feature.configurations.NoneFeatureConfiguration;
+import net.minecraftforge.registries.ForgeRegistries;
+import net.minecraftforge.registries.ForgeRegistry;
+import personthecat.cavegenerator.util.Reference;
+import personthecat.overwritevalidator.annotations.Inherit;
+import personthecat.overwritevalidator.annotations.InheritMissingMembers;
+import personthecat.overwritevalidator.annotations.Overwrite;
+import personthecat.overwritevalidator.annotations.OverwriteClass;
+
+import java.util.Random;
+
+@Log4j2
+@OverwriteClass
+@InheritMissingMembers
+public class FallbackCarverFeature extends Feature<NoneFeatureConfiguration> {
+
+    @Inherit
+    private static final personthecat.cavegenerator.world.hook.FallbackCarverFeature INSTANCE = new personthecat.cavegenerator.world.hook.FallbackCarverFeature();
+
+    @Inherit
+    public static final ConfiguredFeature<?, ?> HOOK = INSTANCE.configured(FeatureConfiguration.NONE);
+
+    @Inherit
+    private FallbackCarverFeature() {
+        super(Codec.unit(NoneFeatureConfiguration.INSTANCE));
+    }
+
+    @Inherit
+    @Override
+    public boolean place(WorldGenLevel world, ChunkGenerator chunk, Random rand, BlockPos pos, NoneFeatureConfiguration cfg) {
+        return false;
+    }
+
+    @Overwrite
+    public static void register() {
+        log.info("Loading fallback carver feature.");
+
+        ((ForgeRegistry<?>) ForgeRegistries.FEATURES).unfreeze();
+        ForgeRegistries.FEATURES
+            .register(INSTANCE.setRegistryName(new ResourceLocation(Reference.MOD_ID, "fallback_carver_feature")));
+        ((ForgeRegistry<?>) ForgeRegistries.FEATURES).freeze();
+
+        Registry.register(BuiltinRegistries.CONFIGURED_FEATURE,
+            new ResourceLocation(Reference.MOD_ID, "configured_fallback_carver_feature"),
+            HOOK);
+    }
+}